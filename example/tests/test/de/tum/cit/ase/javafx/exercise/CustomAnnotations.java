@@ -14,7 +14,12 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 
 // Whitelisted test classes
+@WhitelistClass(ExampleAppScenario.class)
 @WhitelistClass(ExampleAppTest.class)
+@WhitelistClass(ExampleAppVirtualTimeTest.class)
+@WhitelistClass(ExampleAppBenchmark.class)
+@WhitelistClass(ExampleAppRenderingBenchmark.class)
+@WhitelistClass(ExampleAppRenderingBenchmark.WithoutRendering.class)
 
 // Other test annotations
 @StrictTimeout(10)
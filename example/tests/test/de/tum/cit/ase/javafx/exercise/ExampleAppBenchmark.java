@@ -0,0 +1,42 @@
+package de.tum.cit.ase.javafx.exercise;
+
+import de.tum.cit.ase.eos.InteractionMode;
+import de.tum.in.test.api.StrictTimeout;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Compares the robot and the direct interaction mode on {@link ExampleAppScenario#enterTextAndCountCharacters()}.
+ * Run with <code>./gradlew benchmark</code>.
+ */
+@Tag("benchmark")
+@StrictTimeout(120)
+public class ExampleAppBenchmark extends ExampleAppScenario {
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 20;
+
+	private InteractionMode interactionMode = InteractionMode.ROBOT;
+
+	@Override
+	protected InteractionMode getInteractionMode() {
+		return interactionMode;
+	}
+
+	@ParameterizedTest
+	@EnumSource(InteractionMode.class)
+	public void benchmarkTestInput(InteractionMode interactionMode) {
+		this.interactionMode = interactionMode;
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			enterTextAndCountCharacters();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			enterTextAndCountCharacters();
+		}
+		double millisPerRound = (System.nanoTime() - start) / 1_000_000.0 / MEASURED_ROUNDS;
+
+		System.out.printf("%s: %.1f ms per scenario%n", interactionMode, millisPerRound);
+	}
+}
@@ -0,0 +1,46 @@
+package de.tum.cit.ase.javafx.exercise;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.OperatingSystemMXBean;
+import de.tum.cit.ase.eos.InteractionMode;
+import de.tum.cit.ase.eos.SkipRendering;
+import de.tum.cit.ase.eos.UseInteractionMode;
+import de.tum.in.test.api.StrictTimeout;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the CPU time of {@link ExampleAppScenario#enterTextAndCountCharacters()} with and without painting the scenes.
+ * The CPU time includes all threads of the process, in particular the renderer. Run with <code>./gradlew benchmark</code>.
+ */
+@Tag("benchmark")
+@StrictTimeout(120)
+@UseInteractionMode(InteractionMode.DIRECT)
+public class ExampleAppRenderingBenchmark extends ExampleAppScenario {
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 50;
+
+	@Test
+	public void benchmarkTestInput() {
+		OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			enterTextAndCountCharacters();
+		}
+		long startCpu = os.getProcessCpuTime();
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			enterTextAndCountCharacters();
+		}
+		double cpuMillisPerRound = (os.getProcessCpuTime() - startCpu) / 1_000_000.0 / MEASURED_ROUNDS;
+		double millisPerRound = (System.nanoTime() - start) / 1_000_000.0 / MEASURED_ROUNDS;
+
+		String mode = getClass().isAnnotationPresent(SkipRendering.class) ? "SkipRendering" : "Rendering";
+		System.out.printf("%s: %.1f ms CPU time, %.1f ms wall time per scenario%n", mode, cpuMillisPerRound, millisPerRound);
+	}
+
+	@SkipRendering
+	public static class WithoutRendering extends ExampleAppRenderingBenchmark {
+	}
+}
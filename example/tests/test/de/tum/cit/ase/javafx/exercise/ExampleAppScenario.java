@@ -0,0 +1,57 @@
+package de.tum.cit.ase.javafx.exercise;
+
+import de.tum.cit.ase.eos.JavaFXTest;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import org.junit.jupiter.api.BeforeEach;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.testfx.api.FxAssert.verifyThat;
+
+import static org.testfx.matcher.control.LabeledMatchers.hasText;
+
+/**
+ * Starts the example application and provides the scenario shared by {@link ExampleAppTest} and the benchmarks. It has
+ * no test methods of its own, so the benchmarks only run their measurements.
+ */
+@CustomAnnotations
+public abstract class ExampleAppScenario extends JavaFXTest {
+	protected Button button;
+	protected TextField textField;
+	protected Label label;
+
+	@Override
+	public String getAppClassName() {
+		return "de.tum.cit.ase.javafx.exercise.ExampleApp";
+	}
+
+	@BeforeEach
+	public void initializeObjects() {
+		button = getNodeOfType(Button.class, ".button");
+		textField = getNodeOfType(TextField.class, ".text-field");
+		label = getNodeOfType(Label.class, ".label");
+	}
+
+	protected void enterTextAndCountCharacters() {
+		assertEquals("Enter text here", textField.getPromptText());
+
+		String input = "Hello, World!";
+
+		clickOn(textField).write(input);
+		clickOn(button);
+		verifyThat(label, hasText("Character count: " + input.length()));
+
+		clickOn(textField).eraseText(input.length());
+
+		clickOn(textField).write("a");
+		clickOn(button);
+		verifyThat(label, hasText("Character count: 1"));
+
+		clickOn(textField).eraseText(1);
+
+		clickOn(textField).write("");
+		clickOn(button);
+		verifyThat(label, hasText("Character count: 0"));
+	}
+}
@@ -0,0 +1,32 @@
+package de.tum.cit.ase.javafx.exercise;
+
+import java.util.concurrent.TimeUnit;
+
+import de.tum.cit.ase.eos.FxStallThreshold;
+import de.tum.cit.ase.eos.VirtualFxTime;
+import javafx.animation.Animation;
+import javafx.animation.RotateTransition;
+import javafx.util.Duration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the tests of {@link ExampleAppTest} on virtual time. Advancing the time by minutes runs all pulses in one task
+ * on the JavaFX Application Thread, which must not be reported as a stall even with a low threshold.
+ */
+@VirtualFxTime
+@FxStallThreshold(value = 500, unit = TimeUnit.MILLISECONDS)
+public class ExampleAppVirtualTimeTest extends ExampleAppTest {
+
+	@Test
+	public void testInputAfterLongAnimation() {
+		RotateTransition rotation = new RotateTransition(Duration.seconds(1), label);
+		rotation.setByAngle(360);
+		rotation.setCycleCount(Animation.INDEFINITE);
+		interact(rotation::play);
+
+		advanceFxTime(Duration.minutes(10));
+
+		interact(rotation::stop);
+		testInput();
+	}
+}
@@ -0,0 +1,152 @@
+package de.tum.cit.ase.eos;
+
+import static de.tum.in.test.api.localization.Messages.localized;
+import static de.tum.in.test.api.localization.Messages.localizedFailure;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.stage.Stage;
+
+import org.opentest4j.AssertionFailedError;
+
+import de.tum.in.test.api.util.ReflectionTestUtils;
+
+/**
+ * The no-argument constructor and the <code>start(Stage)</code> method of an application class, resolved and verified
+ * once and cached as method handles.
+ * <p>
+ * Resolution and invocation errors are reported with the same messages as {@link ReflectionTestUtils}, which was used
+ * to start the application before.
+ */
+final class ApplicationHandles {
+
+    private static final Map<String, ApplicationHandles> HANDLES = new ConcurrentHashMap<>();
+
+    private static final String START_METHOD = "start";
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final MethodType START_TYPE = MethodType.methodType(void.class, Object.class, Stage.class);
+
+    private final String simpleName;
+
+    private final String startDeclaringClass;
+
+    private final MethodHandle constructor;
+
+    private final MethodHandle start;
+
+    private ApplicationHandles(String simpleName, String startDeclaringClass, MethodHandle constructor, MethodHandle start) {
+        this.simpleName = simpleName;
+        this.startDeclaringClass = startDeclaringClass;
+        this.constructor = constructor;
+        this.start = start;
+    }
+
+    /**
+     * Returns the cached handles of the given application class, resolving them on first use. Failed resolutions are
+     * not cached, so every test reports the failure.
+     *
+     * @param className The qualified name of the application class.
+     * @return The handles of the application class.
+     * @throws AssertionFailedError If the class, its constructor or its start method cannot be found or accessed.
+     */
+    static ApplicationHandles forClass(String className) {
+        ApplicationHandles handles = HANDLES.get(className);
+        if (handles == null) {
+            handles = resolve(className);
+            HANDLES.putIfAbsent(className, handles);
+        }
+        return handles;
+    }
+
+    private static ApplicationHandles resolve(String className) {
+        Class<?> clazz = ReflectionTestUtils.getClazz(className);
+        String simpleName = clazz.getSimpleName();
+
+        Constructor<?> constructor;
+        try {
+            constructor = clazz.getDeclaredConstructor();
+        }
+        catch (NoSuchMethodException e) {
+            throw localizedFailure("reflection_test_utils.constructor_not_found_args", simpleName, "none");
+        }
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            throw localizedFailure("reflection_test_utils.constructor_abstract_class", simpleName);
+        }
+        MethodHandle constructorHandle;
+        try {
+            constructorHandle = MethodHandles.publicLookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        }
+        catch (IllegalAccessException e) {
+            throw localizedFailure("reflection_test_utils.constructor_access", simpleName, "none", illegalAccessSource(constructor));
+        }
+
+        Method start = ReflectionTestUtils.getMethod(clazz, START_METHOD, Stage.class);
+        MethodHandle startHandle;
+        try {
+            startHandle = MethodHandles.publicLookup().unreflect(start).asType(START_TYPE);
+        }
+        catch (IllegalAccessException e) {
+            throw localizedFailure("reflection_test_utils.method_access", START_METHOD, start.getDeclaringClass().getSimpleName(), illegalAccessSource(start));
+        }
+        return new ApplicationHandles(simpleName, start.getDeclaringClass().getSimpleName(), constructorHandle, startHandle);
+    }
+
+    private static String illegalAccessSource(Member member) {
+        if (!Modifier.isPublic(member.getModifiers())) {
+            return localized(member instanceof Constructor ? "reflection_test_utils.construct.constructor" : "reflection_test_utils.construct.method");
+        }
+        return localized("reflection_test_utils.construct.class");
+    }
+
+    /**
+     * Creates a new instance of the application.
+     *
+     * @return The new application.
+     * @throws AssertionFailedError If the constructor throws an exception.
+     */
+    Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        }
+        catch (AssertionFailedError e) {
+            throw e;
+        }
+        catch (ExceptionInInitializerError e) {
+            throw localizedFailure("reflection_test_utils.constructor_class_init", simpleName, 0);
+        }
+        catch (Throwable t) {
+            throw localizedFailure("reflection_test_utils.constructor_internal_exception", simpleName, 0);
+        }
+    }
+
+    /**
+     * Starts the given application on the given stage.
+     *
+     * @param application An instance created by {@link #newInstance()}.
+     * @param stage       The primary stage.
+     * @throws AssertionFailedError If the start method throws an exception.
+     */
+    void start(Object application, Stage stage) {
+        try {
+            start.invokeExact(application, stage);
+        }
+        catch (AssertionFailedError e) {
+            throw e;
+        }
+        catch (ExceptionInInitializerError e) {
+            throw localizedFailure("reflection_test_utils.method_class_init", START_METHOD, startDeclaringClass);
+        }
+        catch (Throwable t) {
+            throw localizedFailure("reflection_test_utils.method_internal_exception", START_METHOD, startDeclaringClass, t);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package de.tum.cit.ase.eos;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.ButtonBase;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.DialogPane;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * Answers the windows the application shows during a test, e.g. an <code>Alert</code> opened with
+ * <code>showAndWait()</code>.
+ * <p>
+ * A listener on the window list notices every new window when it is shown. The window is answered by the first
+ * matching response right after it was shown, in the nested event loop of a modal window. If no response matches a
+ * modal window and unexpected dialogs should fail the test, the window is closed and the failure is reported like an
+ * uncaught exception.
+ *
+ * @see FailOnUnexpectedDialogs
+ */
+final class DialogResponder {
+
+    // Added from the test thread, read on the JavaFX Application Thread
+    private final List<Response> responses = new CopyOnWriteArrayList<>();
+
+    private final Stage primaryStage;
+
+    private final boolean failOnUnexpectedDialogs;
+
+    private final FxExceptionCapture failures;
+
+    private final ListChangeListener<Window> windowListener = this::windowsChanged;
+
+    private DialogResponder(Stage primaryStage, boolean failOnUnexpectedDialogs, FxExceptionCapture failures) {
+        this.primaryStage = primaryStage;
+        this.failOnUnexpectedDialogs = failOnUnexpectedDialogs;
+        this.failures = failures;
+    }
+
+    /**
+     * Starts answering the windows shown from now on. Must be called on the JavaFX Application Thread.
+     *
+     * @param primaryStage            The primary stage, which is never answered.
+     * @param failOnUnexpectedDialogs Whether modal windows without a matching response fail the test.
+     * @param failures                The capture to report unexpected dialogs to.
+     * @return The installed responder.
+     */
+    static DialogResponder install(Stage primaryStage, boolean failOnUnexpectedDialogs, FxExceptionCapture failures) {
+        DialogResponder responder = new DialogResponder(primaryStage, failOnUnexpectedDialogs, failures);
+        Window.getWindows().addListener(responder.windowListener);
+        return responder;
+    }
+
+    /**
+     * Stops answering windows. Must be called on the JavaFX Application Thread.
+     */
+    void uninstall() {
+        Window.getWindows().removeListener(windowListener);
+        responses.clear();
+    }
+
+    /**
+     * Answers the stages matching the given condition with the given response. May be called from any thread.
+     *
+     * @param condition The condition the stage has to fulfill. It is evaluated on the JavaFX Application Thread.
+     * @param response  The response, run on the JavaFX Application Thread.
+     */
+    void respond(Predicate<? super Stage> condition, Consumer<? super Stage> response) {
+        responses.add(new Response(condition, response));
+    }
+
+    /**
+     * Answers the dialogs with the given title by pressing the button of the given type. May be called from any thread.
+     *
+     * @param title      The title of the dialog.
+     * @param buttonType The type of the button to press.
+     */
+    void respondToDialog(String title, ButtonType buttonType) {
+        respond(stage -> title.equals(stage.getTitle()) && dialogPaneOf(stage) != null, stage -> {
+            Node button = dialogPaneOf(stage).lookupButton(buttonType);
+            if (button instanceof ButtonBase) {
+                ((ButtonBase) button).fire();
+            }
+            else {
+                stage.hide();
+                failures.reportFailure("The dialog \"" + title + "\" has no \"" + buttonType.getText() + "\" button.");
+            }
+        });
+    }
+
+    private void windowsChanged(ListChangeListener.Change<? extends Window> change) {
+        while (change.next()) {
+            for (Window window : change.getAddedSubList()) {
+                if (window instanceof Stage && window != primaryStage) {
+                    // The window list changes before showAndWait enters its nested event loop
+                    Platform.runLater(() -> answer((Stage) window));
+                }
+            }
+        }
+    }
+
+    private void answer(Stage stage) {
+        if (!stage.isShowing()) {
+            return;
+        }
+        for (Response response : responses) {
+            if (response.condition.test(stage)) {
+                response.response.accept(stage);
+                return;
+            }
+        }
+        if (failOnUnexpectedDialogs && stage.getModality() != Modality.NONE) {
+            String title = stage.getTitle();
+            stage.hide();
+            failures.reportFailure("An unexpected modal dialog" + (title == null ? "" : " titled \"" + title + "\"") + " was shown.");
+        }
+    }
+
+    private static DialogPane dialogPaneOf(Stage stage) {
+        Parent root = stage.getScene() == null ? null : stage.getScene().getRoot();
+        if (root == null) {
+            return null;
+        }
+        Node dialogPane = root instanceof DialogPane ? root : root.lookup(".dialog-pane");
+        return dialogPane instanceof DialogPane ? (DialogPane) dialogPane : null;
+    }
+
+    /**
+     * A condition for stages and the response to them.
+     */
+    private static final class Response {
+
+        private final Predicate<? super Stage> condition;
+
+        private final Consumer<? super Stage> response;
+
+        private Response(Predicate<? super Stage> condition, Consumer<? super Stage> response) {
+            this.condition = condition;
+            this.response = response;
+        }
+    }
+}
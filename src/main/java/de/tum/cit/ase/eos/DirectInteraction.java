@@ -0,0 +1,349 @@
+package de.tum.cit.ase.eos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javafx.event.Event;
+import javafx.event.EventTarget;
+import javafx.event.EventType;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.input.ContextMenuEvent;
+import javafx.scene.input.InputMethodEvent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.PickResult;
+import javafx.stage.Window;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fires synthetic input events directly at the scene graph instead of going through the TestFX robot.
+ * <p>
+ * The events are created the way a {@link Scene} creates them for real input: mouse events are delivered to the
+ * topmost visible, non mouse-transparent node at the target position and key events to the focus owner of the scene.
+ * Events are not delivered to disabled nodes. All methods must be called on the JavaFX Application Thread.
+ *
+ * @see InteractionMode#DIRECT
+ */
+final class DirectInteraction {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectInteraction.class);
+
+    private static final int SHIFT_DOWN = 1;
+
+    private static final int CONTROL_DOWN = 1 << 1;
+
+    private static final int ALT_DOWN = 1 << 2;
+
+    private static final int META_DOWN = 1 << 3;
+
+    private DirectInteraction() {
+    }
+
+    /**
+     * Clicks the center of the given node with the given buttons.
+     *
+     * @param node       The node to click on. It must be part of a scene that is shown in a window.
+     * @param clickCount The number of consecutive clicks, e.g. <code>2</code> for a double click.
+     * @param buttons    The buttons to click with. If empty, the primary button is used.
+     */
+    static void clickOn(Node node, int clickCount, MouseButton... buttons) {
+        Bounds bounds = node.localToScene(node.getBoundsInLocal());
+        clickOn(node.getScene(), bounds.getCenterX(), bounds.getCenterY(), clickCount, buttons);
+    }
+
+    /**
+     * Clicks the given position of the scene with the given buttons.
+     *
+     * @param scene      The scene to click on. It must be shown in a window.
+     * @param sceneX     The x coordinate in the scene.
+     * @param sceneY     The y coordinate in the scene.
+     * @param clickCount The number of consecutive clicks, e.g. <code>2</code> for a double click.
+     * @param buttons    The buttons to click with. If empty, the primary button is used.
+     */
+    static void clickOn(Scene scene, double sceneX, double sceneY, int clickCount, MouseButton... buttons) {
+        Node picked = pick(scene.getRoot(), sceneX, sceneY);
+        if (picked != null && picked.isDisabled()) {
+            LOG.debug("Not clicking on disabled node {}", picked);
+            return;
+        }
+
+        Window window = scene.getWindow();
+        if (!window.isFocused()) {
+            window.requestFocus();
+        }
+
+        EventTarget target = picked != null ? picked : scene;
+        double screenX = window.getX() + scene.getX() + sceneX;
+        double screenY = window.getY() + scene.getY() + sceneY;
+        PickResult pickResult = new PickResult(target, sceneX, sceneY);
+
+        fireMouseEvent(target, MouseEvent.MOUSE_MOVED, sceneX, sceneY, screenX, screenY, MouseButton.NONE, 0, false, pickResult);
+        for (int click = 1; click <= clickCount; click++) {
+            for (MouseButton button : buttons.length == 0 ? new MouseButton[] { MouseButton.PRIMARY } : buttons) {
+                fireMouseEvent(target, MouseEvent.MOUSE_PRESSED, sceneX, sceneY, screenX, screenY, button, click, true, pickResult);
+                if (button == MouseButton.SECONDARY) {
+                    Event.fireEvent(target, new ContextMenuEvent(null, target, ContextMenuEvent.CONTEXT_MENU_REQUESTED, sceneX, sceneY, screenX, screenY, false, pickResult));
+                }
+                fireMouseEvent(target, MouseEvent.MOUSE_RELEASED, sceneX, sceneY, screenX, screenY, button, click, false, pickResult);
+                fireMouseEvent(target, MouseEvent.MOUSE_CLICKED, sceneX, sceneY, screenX, screenY, button, click, false, pickResult);
+            }
+        }
+    }
+
+    /**
+     * Presses and releases the given keys one after another.
+     *
+     * @param scene The scene whose focus owner receives the key events.
+     * @param keys  The keys to type.
+     */
+    static void type(Scene scene, KeyCode... keys) {
+        for (KeyCode key : keys) {
+            int modifiers = modifiersAfterPress(0, key);
+            fireKeyEvent(scene, KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, key.getChar(), key, modifiers);
+            fireKeyTyped(scene, key, modifiers);
+            fireKeyEvent(scene, KeyEvent.KEY_RELEASED, KeyEvent.CHAR_UNDEFINED, key.getChar(), key, 0);
+        }
+    }
+
+    /**
+     * Presses the given keys in order and releases them in reverse order, e.g. for shortcuts such as
+     * <code>CONTROL + A</code>. The modifier state of every event reflects the keys pressed before it.
+     *
+     * @param scene The scene whose focus owner receives the key events.
+     * @param keys  The keys of the combination.
+     */
+    static void push(Scene scene, KeyCode... keys) {
+        int modifiers = 0;
+        for (KeyCode key : keys) {
+            modifiers = modifiersAfterPress(modifiers, key);
+            fireKeyEvent(scene, KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, key.getChar(), key, modifiers);
+            fireKeyTyped(scene, key, modifiers);
+        }
+        for (int i = keys.length - 1; i >= 0; i--) {
+            modifiers = modifiersAfterRelease(modifiers, keys[i]);
+            fireKeyEvent(scene, KeyEvent.KEY_RELEASED, KeyEvent.CHAR_UNDEFINED, keys[i].getChar(), keys[i], modifiers);
+        }
+    }
+
+    /**
+     * Writes the given text to the focus owner of the scene.
+     * <p>
+     * Characters that can be produced by a single key are typed with a <code>KEY_PRESSED</code>,
+     * <code>KEY_TYPED</code> and <code>KEY_RELEASED</code> sequence. All other characters are committed with an
+     * {@link InputMethodEvent} if the focus owner supports input methods, or with a single <code>KEY_TYPED</code>
+     * event otherwise.
+     *
+     * @param scene The scene whose focus owner receives the events.
+     * @param text  The text to write.
+     */
+    static void write(Scene scene, String text) {
+        for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+            int codePoint = text.codePointAt(i);
+            String character = new String(Character.toChars(codePoint));
+            KeyCode key = keyCodeOf(codePoint);
+            if (key != null) {
+                int modifiers = Character.isUpperCase(codePoint) ? SHIFT_DOWN : 0;
+                fireKeyEvent(scene, KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, character, key, modifiers);
+                fireKeyEvent(scene, KeyEvent.KEY_TYPED, character, "", KeyCode.UNDEFINED, modifiers);
+                fireKeyEvent(scene, KeyEvent.KEY_RELEASED, KeyEvent.CHAR_UNDEFINED, character, key, modifiers);
+            }
+            else if (scene.getFocusOwner() != null && scene.getFocusOwner().getInputMethodRequests() != null) {
+                commitText(scene, character);
+            }
+            else {
+                fireKeyEvent(scene, KeyEvent.KEY_TYPED, character, "", KeyCode.UNDEFINED, 0);
+            }
+        }
+    }
+
+    /**
+     * Commits the given text to the focus owner of the scene with a single {@link InputMethodEvent}.
+     *
+     * @param scene The scene whose focus owner receives the event.
+     * @param text  The text to commit.
+     */
+    static void commitText(Scene scene, String text) {
+        EventTarget target = keyTarget(scene);
+        if (target != null) {
+            Event.fireEvent(target, new InputMethodEvent(null, target, InputMethodEvent.INPUT_METHOD_TEXT_CHANGED, List.of(), text, 0));
+        }
+    }
+
+    /**
+     * Enters the given text into the given control in bulk.
+     * <p>
+     * Each line is committed with a single {@link InputMethodEvent}, or with one batch of <code>KEY_TYPED</code> events
+     * if the control does not support input methods, so text formatters and listeners see the same edits as when the
+     * text is typed. Line breaks and tabs are typed as <code>ENTER</code> and <code>TAB</code> keys in between, e.g.
+     * to fire the action of a text field. All events are sent to the control, even if a key moves the focus.
+     *
+     * @param control The control to enter the text into. It must be focused, editable and have a skin.
+     * @param text    The text to enter.
+     */
+    static void fillText(TextInputControl control, String text) {
+        boolean inputMethods = control.getInputMethodRequests() != null;
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char character = i < text.length() ? text.charAt(i) : 0;
+            if (i < text.length() && character != '\n' && character != '\t') {
+                continue;
+            }
+            if (i > start) {
+                String segment = text.substring(start, i);
+                if (inputMethods) {
+                    Event.fireEvent(control, new InputMethodEvent(null, control, InputMethodEvent.INPUT_METHOD_TEXT_CHANGED, List.of(), segment, 0));
+                }
+                else {
+                    for (int j = 0; j < segment.length(); j += Character.charCount(segment.codePointAt(j))) {
+                        fireKeyEvent(control, KeyEvent.KEY_TYPED, new String(Character.toChars(segment.codePointAt(j))), "", KeyCode.UNDEFINED, 0);
+                    }
+                }
+            }
+            if (i < text.length()) {
+                String key = String.valueOf(character);
+                KeyCode keyCode = keyCodeOf(character);
+                fireKeyEvent(control, KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, key, keyCode, 0);
+                fireKeyEvent(control, KeyEvent.KEY_TYPED, key, "", KeyCode.UNDEFINED, 0);
+                fireKeyEvent(control, KeyEvent.KEY_RELEASED, KeyEvent.CHAR_UNDEFINED, key, keyCode, 0);
+            }
+            start = i + 1;
+        }
+    }
+
+    /**
+     * Returns the topmost node at the given scene position, the same way JavaFX picks the target of mouse events.
+     * Invisible and mouse transparent nodes are skipped, clips and the view order of children are taken into account.
+     *
+     * @param node   The root of the subtree to search.
+     * @param sceneX The x coordinate in the scene.
+     * @param sceneY The y coordinate in the scene.
+     * @return The picked node or <code>null</code> if no node of the subtree is at the given position.
+     */
+    static Node pick(Node node, double sceneX, double sceneY) {
+        if (!node.isVisible() || node.isMouseTransparent()) {
+            return null;
+        }
+        Point2D local = node.sceneToLocal(sceneX, sceneY);
+        if (local == null) {
+            return null;
+        }
+        Node clip = node.getClip();
+        if (clip != null && !clip.contains(clip.parentToLocal(local))) {
+            return null;
+        }
+        if (node instanceof Parent) {
+            List<Node> children = inPaintOrder(((Parent) node).getChildrenUnmodifiable());
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Node picked = pick(children.get(i), sceneX, sceneY);
+                if (picked != null) {
+                    return picked;
+                }
+            }
+        }
+        return node.contains(local) ? node : null;
+    }
+
+    private static List<Node> inPaintOrder(List<Node> children) {
+        for (Node child : children) {
+            if (child.getViewOrder() != 0) {
+                List<Node> sorted = new ArrayList<>(children);
+                sorted.sort(Comparator.comparingDouble(Node::getViewOrder).reversed());
+                return sorted;
+            }
+        }
+        return children;
+    }
+
+    private static void fireMouseEvent(EventTarget target, EventType<MouseEvent> type, double sceneX, double sceneY, double screenX, double screenY, MouseButton button,
+            int clickCount, boolean buttonDown, PickResult pickResult) {
+        Event.fireEvent(target,
+                new MouseEvent(null, target, type, sceneX, sceneY, screenX, screenY, button, clickCount, false, false, false, false, buttonDown && button == MouseButton.PRIMARY,
+                        buttonDown && button == MouseButton.MIDDLE, buttonDown && button == MouseButton.SECONDARY, buttonDown && button == MouseButton.BACK,
+                        buttonDown && button == MouseButton.FORWARD, false, buttonDown && button == MouseButton.SECONDARY, true, pickResult));
+    }
+
+    private static void fireKeyEvent(Scene scene, EventType<KeyEvent> type, String character, String text, KeyCode key, int modifiers) {
+        EventTarget target = keyTarget(scene);
+        if (target != null) {
+            fireKeyEvent(target, type, character, text, key, modifiers);
+        }
+    }
+
+    private static void fireKeyEvent(EventTarget target, EventType<KeyEvent> type, String character, String text, KeyCode key, int modifiers) {
+        Event.fireEvent(target, new KeyEvent(null, target, type, character, text, key, (modifiers & SHIFT_DOWN) != 0, (modifiers & CONTROL_DOWN) != 0, (modifiers & ALT_DOWN) != 0,
+                (modifiers & META_DOWN) != 0));
+    }
+
+    private static void fireKeyTyped(Scene scene, KeyCode key, int modifiers) {
+        // Like a real keyboard, only keys producing a printable character without a shortcut modifier are typed
+        String character = key.getChar();
+        if (character.length() != 1 || character.charAt(0) < ' ' || character.charAt(0) == 0x7F || (modifiers & (CONTROL_DOWN | ALT_DOWN | META_DOWN)) != 0) {
+            return;
+        }
+        character = (modifiers & SHIFT_DOWN) != 0 ? character.toUpperCase() : character.toLowerCase();
+        fireKeyEvent(scene, KeyEvent.KEY_TYPED, character, "", KeyCode.UNDEFINED, modifiers);
+    }
+
+    private static EventTarget keyTarget(Scene scene) {
+        // The focus owner is resolved for every event because key handlers may move the focus, e.g. on TAB
+        Node focusOwner = scene.getFocusOwner();
+        if (focusOwner == null) {
+            return scene;
+        }
+        if (focusOwner.isDisabled()) {
+            LOG.debug("Not sending key event to disabled node {}", focusOwner);
+            return null;
+        }
+        return focusOwner;
+    }
+
+    private static KeyCode keyCodeOf(int codePoint) {
+        switch (codePoint) {
+            case ' ':
+                return KeyCode.SPACE;
+            case '\n':
+                return KeyCode.ENTER;
+            case '\t':
+                return KeyCode.TAB;
+            default:
+                if (codePoint < 128 && Character.isLetterOrDigit(codePoint)) {
+                    return KeyCode.getKeyCode(String.valueOf((char) Character.toUpperCase(codePoint)));
+                }
+                return null;
+        }
+    }
+
+    private static int modifiersAfterPress(int modifiers, KeyCode key) {
+        return modifiers | modifierOf(key);
+    }
+
+    private static int modifiersAfterRelease(int modifiers, KeyCode key) {
+        return modifiers & ~modifierOf(key);
+    }
+
+    private static int modifierOf(KeyCode key) {
+        // No switch on the enum here, it would compile to a synthetic nested class that is not whitelisted
+        if (key == KeyCode.SHIFT) {
+            return SHIFT_DOWN;
+        }
+        if (key == KeyCode.CONTROL) {
+            return CONTROL_DOWN;
+        }
+        if (key == KeyCode.ALT) {
+            return ALT_DOWN;
+        }
+        if (key == KeyCode.META || key == KeyCode.COMMAND) {
+            return META_DOWN;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,26 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Fails a test as soon as the application shows a modal window that no dialog response of the test matches.
+ * <p>
+ * Modal dialogs such as <code>Alert.showAndWait()</code> block the code that opened them until they are closed.
+ * Without this annotation, an unexpected dialog stays open and the test typically waits until it times out. With it,
+ * the dialog is closed right away and the test fails at its next interaction or wait.
+ *
+ * @see JavaFXTest#respondToDialog(String, javafx.scene.control.ButtonType)
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface FailOnUnexpectedDialogs {
+}
@@ -0,0 +1,100 @@
+package de.tum.cit.ase.eos;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.glass.ui.monocle.NativePlatform;
+import com.sun.glass.ui.monocle.NativePlatformFactory;
+import com.sun.glass.ui.monocle.NativeScreen;
+
+/**
+ * Captures screen regions directly from the framebuffer of the Monocle screen.
+ * <p>
+ * Headless Monocle composes all windows into a framebuffer of premultiplied ARGB pixels. Instead of copying the whole
+ * screen like the robot does, only the rows of the requested region are copied, straight into the pixel buffer of the
+ * returned image.
+ */
+final class FramebufferCapture {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FramebufferCapture.class);
+
+    private static final int SUPPORTED_DEPTH = 32;
+
+    private static FramebufferCapture instance;
+
+    private static boolean resolved;
+
+    private final NativeScreen screen;
+
+    private FramebufferCapture(NativeScreen screen) {
+        this.screen = screen;
+    }
+
+    /**
+     * Returns the framebuffer capture of the Monocle screen.
+     *
+     * @return The capture or <code>null</code> if the tests do not run on a Monocle screen with a 32-bit framebuffer.
+     *         In that case, screenshots have to be taken by the robot.
+     */
+    static synchronized FramebufferCapture getInstance() {
+        if (!resolved) {
+            resolved = true;
+            instance = createInstance();
+        }
+        return instance;
+    }
+
+    private static FramebufferCapture createInstance() {
+        if (!"Monocle".equals(System.getProperty("glass.platform"))) {
+            return null;
+        }
+        try {
+            Method getScreen = NativePlatform.class.getDeclaredMethod("getScreen");
+            getScreen.setAccessible(true);
+            NativeScreen screen = (NativeScreen) getScreen.invoke(NativePlatformFactory.getNativePlatform());
+            if (screen.getDepth() != SUPPORTED_DEPTH || screen.getScale() != 1 || screen.getScreenCapture() == null) {
+                return null;
+            }
+            return new FramebufferCapture(screen);
+        }
+        catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOG.warn("The Monocle framebuffer cannot be accessed, screenshots are taken by the robot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Copies the given region of the screen into a new image. Parts of the region outside of the screen are transparent.
+     *
+     * @param x      The x coordinate of the region on the screen.
+     * @param y      The y coordinate of the region on the screen.
+     * @param width  The width of the region.
+     * @param height The height of the region.
+     * @return The captured image.
+     */
+    WritableImage capture(int x, int y, int width, int height) {
+        int[] pixels = new int[width * height];
+        int screenWidth = screen.getWidth();
+        int fromX = Math.max(x, 0);
+        int toX = Math.min(x + width, screenWidth);
+        int fromY = Math.max(y, 0);
+        int toY = Math.min(y + height, screen.getHeight());
+        if (fromX < toX) {
+            synchronized (NativeScreen.framebufferSwapLock) {
+                ByteBuffer framebuffer = screen.getScreenCapture();
+                IntBuffer screenPixels = framebuffer.asIntBuffer();
+                for (int row = fromY; row < toY; row++) {
+                    screenPixels.get(row * screenWidth + fromX, pixels, (row - y) * width + fromX - x, toX - fromX);
+                }
+            }
+        }
+        return new WritableImage(new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance()));
+    }
+}
@@ -0,0 +1,138 @@
+package de.tum.cit.ase.eos;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.opentest4j.AssertionFailedError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tum.in.test.api.security.ArtemisSecurityManager;
+
+/**
+ * Captures the exceptions that are not caught on the JavaFX Application Thread during a test, e.g. thrown by an event
+ * handler of the application.
+ * <p>
+ * Without the capture, such exceptions are only printed, and the test typically waits for a change that never happens
+ * until it times out. The first captured exception is reported to the test thread at the next interaction or wait,
+ * and waits that are already in progress are woken up. Later exceptions are passed on to the previous handler only.
+ */
+final class FxExceptionCapture implements Thread.UncaughtExceptionHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FxExceptionCapture.class);
+
+    private final Thread fxThread;
+
+    private final Thread.UncaughtExceptionHandler previousHandler;
+
+    private final CompletableFuture<Throwable> exception = new CompletableFuture<>();
+
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    private FxExceptionCapture(Thread fxThread, Thread.UncaughtExceptionHandler previousHandler) {
+        this.fxThread = fxThread;
+        this.previousHandler = previousHandler;
+    }
+
+    /**
+     * Starts capturing the uncaught exceptions of the JavaFX Application Thread. Must be called on the JavaFX
+     * Application Thread.
+     *
+     * @return The installed capture.
+     */
+    static FxExceptionCapture install() {
+        Thread fxThread = Thread.currentThread();
+        FxExceptionCapture capture = new FxExceptionCapture(fxThread, fxThread.getUncaughtExceptionHandler());
+        fxThread.setUncaughtExceptionHandler(capture);
+        return capture;
+    }
+
+    /**
+     * Restores the previous handler of the JavaFX Application Thread. Must be called on the JavaFX Application Thread.
+     */
+    void uninstall() {
+        if (fxThread.getUncaughtExceptionHandler() == this) {
+            fxThread.setUncaughtExceptionHandler(previousHandler);
+        }
+    }
+
+    @Override
+    public void uncaughtException(Thread thread, Throwable throwable) {
+        if (exception.complete(throwable)) {
+            LOG.debug("Captured an uncaught exception of the JavaFX Application Thread", throwable);
+        }
+        previousHandler.uncaughtException(thread, throwable);
+    }
+
+    /**
+     * Completes the given future exceptionally with the captured exception as soon as one is captured, e.g. to wake up
+     * a test waiting for it.
+     *
+     * @param future The future to complete.
+     */
+    void completeOnException(CompletableFuture<?> future) {
+        exception.thenAccept(future::completeExceptionally);
+    }
+
+    /**
+     * Reports a failure detected on the JavaFX Application Thread to the test thread like a captured exception, e.g.
+     * an unexpected dialog. May be called from any thread.
+     *
+     * @param message The message of the failure.
+     */
+    void reportFailure(String message) {
+        exception.complete(new AssertionFailedError(message));
+    }
+
+    /**
+     * Fails the test if an exception was captured or a failure was reported and has not been reported yet. May be
+     * called from any thread.
+     *
+     * @throws AssertionFailedError If an exception was captured or a failure was reported.
+     */
+    void check() {
+        Throwable throwable = exception.getNow(null);
+        if (throwable == null || !reported.compareAndSet(false, true)) {
+            return;
+        }
+        if (throwable instanceof AssertionFailedError) {
+            fail(throwable.getMessage());
+        }
+        fail("The JavaFX Application Thread threw " + throwable + location(throwable), throwable);
+    }
+
+    /**
+     * Returns the first stack frame of the throwable or its causes that is not whitelisted, i.e. most likely the code
+     * of the student that threw it.
+     */
+    private static String location(Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            String location = studentLocation(current.getStackTrace());
+            if (location != null) {
+                return location;
+            }
+        }
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        return stackTrace.length == 0 ? "" : "\n at " + stackTrace[0];
+    }
+
+    /**
+     * Returns the first stack frame that is not whitelisted as a line to append to a failure message.
+     *
+     * @param stackTrace The stack trace to search, starting with the innermost frame.
+     * @return The line or <code>null</code> if all frames are whitelisted or the whitelist is not configured, e.g.
+     *         outside of an Ares test.
+     */
+    static String studentLocation(StackTraceElement[] stackTrace) {
+        try {
+            Optional<StackTraceElement> frame = ArtemisSecurityManager.firstNonWhitelisted(stackTrace);
+            return frame.map(element -> "\n at " + element).orElse(null);
+        }
+        catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package de.tum.cit.ase.eos;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.stage.Window;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.Toolkit;
+import com.sun.scenario.animation.AbstractPrimaryTimer;
+import com.sun.scenario.animation.shared.PulseReceiver;
+
+/**
+ * Waits until the JavaFX Application Thread is idle.
+ * <p>
+ * The toolkit is idle when no pulse is pending or running, the scenes of all showing windows are neither dirty nor need
+ * a layout, no finite animation is running, if requested, and the event queue was drained twice in a row. Instead of sleeping between
+ * several rounds of events like {@link org.testfx.util.WaitForAsyncUtils#waitForFxEvents()}, the state is checked
+ * again right after the next pulse. Indefinite animations, such as the blinking caret of a text field, and animation
+ * timers never end and are therefore ignored.
+ * <p>
+ * The toolkit internals are read with reflection. If they are not accessible in this JavaFX version, only the event
+ * queue and the layout are checked.
+ */
+final class FxIdle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FxIdle.class);
+
+    /**
+     * The maximum time to wait for the idle state, e.g. if a long animation is running.
+     */
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    private static FxIdle instance;
+
+    private final Field pulseRunning;
+
+    private final Method isDirtyEmpty;
+
+    private final Field dirtyNodesSize;
+
+    private final Field receivers;
+
+    private final Field receiversLength;
+
+    // Only accessed on the JavaFX Application Thread
+    private final List<Runnable> afterNextPulse = new ArrayList<>();
+
+    private TKPulseListener pulseListener;
+
+    private AnimationTimer pulseTimer;
+
+    private Field receiverAnimation;
+
+    /**
+     * Why the JavaFX Application Thread was not idle at the last check, reported if the wait times out.
+     */
+    private volatile String busyReason;
+
+    private long waits;
+
+    private long totalNanos;
+
+    private long maxNanos;
+
+    private long timeouts;
+
+    private FxIdle(Field pulseRunning, Method isDirtyEmpty, Field dirtyNodesSize, Field receivers, Field receiversLength) {
+        this.pulseRunning = pulseRunning;
+        this.isDirtyEmpty = isDirtyEmpty;
+        this.dirtyNodesSize = dirtyNodesSize;
+        this.receivers = receivers;
+        this.receiversLength = receiversLength;
+    }
+
+    /**
+     * Returns the idle detection shared by all tests.
+     *
+     * @return The idle detection.
+     */
+    static synchronized FxIdle getInstance() {
+        if (instance == null) {
+            instance = create();
+        }
+        return instance;
+    }
+
+    private static FxIdle create() {
+        try {
+            Field pulseRunning = Toolkit.getToolkit().getClass().getDeclaredField("pulseRunning");
+            Method isDirtyEmpty = Scene.class.getDeclaredMethod("isDirtyEmpty");
+            Field dirtyNodesSize = Scene.class.getDeclaredField("dirtyNodesSize");
+            Field receivers = AbstractPrimaryTimer.class.getDeclaredField("receivers");
+            Field receiversLength = AbstractPrimaryTimer.class.getDeclaredField("receiversLength");
+            pulseRunning.setAccessible(true);
+            isDirtyEmpty.setAccessible(true);
+            dirtyNodesSize.setAccessible(true);
+            receivers.setAccessible(true);
+            receiversLength.setAccessible(true);
+            return new FxIdle(pulseRunning, isDirtyEmpty, dirtyNodesSize, receivers, receiversLength);
+        }
+        catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOG.warn("The pulse state of this JavaFX version cannot be read, only the event queue and the layout are checked for idleness", e);
+            return new FxIdle(null, null, null, null, null);
+        }
+    }
+
+    /**
+     * Waits until the JavaFX Application Thread is idle, but at most one second. Must not be called on the JavaFX
+     * Application Thread. If the wait times out, a warning names what kept the thread busy and the timeout is counted
+     * in the {@link #getStatistics() statistics}.
+     *
+     * @param includeAnimations Whether running animations keep the toolkit busy. Must be <code>false</code> if the
+     *                              animations do not run in real time.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    void await(boolean includeAnimations) throws InterruptedException {
+        long start = System.nanoTime();
+        CompletableFuture<Void> idle = new CompletableFuture<>();
+        busyReason = "the event queue was not drained";
+        Platform.runLater(() -> check(idle, includeAnimations, false));
+        boolean timedOut = false;
+        try {
+            idle.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            idle.cancel(false);
+            timedOut = true;
+            LOG.warn("The JavaFX Application Thread did not become idle within {} ms because {}, continuing anyway", TIMEOUT_MILLIS, busyReason);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Could not check whether the JavaFX Application Thread is idle", e.getCause());
+        }
+        record(System.nanoTime() - start, timedOut);
+    }
+
+    /**
+     * Returns the statistics of all waits so far.
+     *
+     * @return A snapshot of the statistics.
+     */
+    synchronized FxIdleStatistics getStatistics() {
+        return new FxIdleStatistics(waits, totalNanos, maxNanos, timeouts);
+    }
+
+    private synchronized void record(long nanos, boolean timedOut) {
+        waits++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        if (timedOut) {
+            timeouts++;
+        }
+    }
+
+    private void check(CompletableFuture<Void> idle, boolean includeAnimations, boolean confirmed) {
+        if (idle.isDone()) {
+            return;
+        }
+        String reason;
+        try {
+            reason = busyReason(includeAnimations);
+        }
+        catch (RuntimeException e) {
+            idle.completeExceptionally(e);
+            return;
+        }
+        if (reason != null) {
+            busyReason = reason;
+            afterNextPulse(() -> check(idle, includeAnimations, false));
+        }
+        else if (confirmed) {
+            idle.complete(null);
+        }
+        else {
+            // Events posted by the events that ran before this check are still queued
+            Platform.runLater(() -> check(idle, includeAnimations, true));
+        }
+    }
+
+    /**
+     * Returns why the JavaFX Application Thread is not idle or <code>null</code> if it is.
+     */
+    private String busyReason(boolean includeAnimations) {
+        try {
+            if (pulseRunning != null && ((AtomicBoolean) pulseRunning.get(Toolkit.getToolkit())).get()) {
+                return "a pulse was running";
+            }
+            for (Window window : Window.getWindows()) {
+                Scene scene = window.getScene();
+                if (!window.isShowing() || scene == null) {
+                    continue;
+                }
+                if (scene.getRoot() != null && scene.getRoot().isNeedsLayout()) {
+                    return "the scene of " + window + " needed a layout";
+                }
+                if (isDirtyEmpty != null && (!(boolean) isDirtyEmpty.invoke(scene) || dirtyNodesSize.getInt(scene) > 0)) {
+                    return "the scene of " + window + " was not rendered yet";
+                }
+            }
+            if (includeAnimations && receivers != null && isFiniteAnimationRunning()) {
+                return "a finite animation was running";
+            }
+            return null;
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not read the pulse state", e);
+        }
+    }
+
+    private boolean isFiniteAnimationRunning() throws ReflectiveOperationException {
+        AbstractPrimaryTimer timer = Toolkit.getToolkit().getPrimaryTimer();
+        PulseReceiver[] pulseReceivers = (PulseReceiver[]) receivers.get(timer);
+        int length = receiversLength.getInt(timer);
+        for (int i = 0; i < length; i++) {
+            Animation animation = animationOf(pulseReceivers[i]);
+            if (animation != null && animation.getCycleCount() != Animation.INDEFINITE && animation.getStatus() == Animation.Status.RUNNING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the animation an animation's pulse receiver belongs to, which is the enclosing instance of the receiver.
+     */
+    private Animation animationOf(PulseReceiver receiver) throws IllegalAccessException {
+        if (receiverAnimation == null || receiverAnimation.getDeclaringClass() != receiver.getClass()) {
+            receiverAnimation = null;
+            for (Field field : receiver.getClass().getDeclaredFields()) {
+                if (Animation.class.isAssignableFrom(field.getType())) {
+                    field.setAccessible(true);
+                    receiverAnimation = field;
+                }
+            }
+            if (receiverAnimation == null) {
+                return null;
+            }
+        }
+        return (Animation) receiverAnimation.get(receiver);
+    }
+
+    private void afterNextPulse(Runnable runnable) {
+        afterNextPulse.add(runnable);
+        if (pulseRunning == null) {
+            // Without access to the toolkit, an animation timer is called in the next pulse instead of a pulse listener
+            if (pulseTimer == null) {
+                pulseTimer = new AnimationTimer() {
+
+                    @Override
+                    public void handle(long now) {
+                        pulse();
+                    }
+                };
+            }
+            pulseTimer.start();
+            return;
+        }
+        if (pulseListener == null) {
+            pulseListener = this::pulse;
+            Toolkit.getToolkit().addPostSceneTkPulseListener(pulseListener);
+        }
+        Toolkit.getToolkit().requestNextPulse();
+    }
+
+    private void pulse() {
+        if (afterNextPulse.isEmpty()) {
+            return;
+        }
+        if (pulseTimer != null) {
+            pulseTimer.stop();
+        }
+        // Run after the pulse has ended
+        List<Runnable> runnables = new ArrayList<>(afterNextPulse);
+        afterNextPulse.clear();
+        runnables.forEach(Platform::runLater);
+    }
+}
@@ -0,0 +1,69 @@
+package de.tum.cit.ase.eos;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the waits for the JavaFX Application Thread to become idle.
+ *
+ * @see JavaFXTest#waitForFxIdle()
+ */
+public final class FxIdleStatistics {
+
+    private final long waits;
+
+    private final long totalNanos;
+
+    private final long maxNanos;
+
+    private final long timeouts;
+
+    FxIdleStatistics(long waits, long totalNanos, long maxNanos, long timeouts) {
+        this.waits = waits;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * Returns the number of waits.
+     *
+     * @return The number of waits.
+     */
+    public long getWaits() {
+        return waits;
+    }
+
+    /**
+     * Returns the total time spent waiting.
+     *
+     * @return The total time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the time of the longest wait.
+     *
+     * @return The longest time in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Returns the number of waits that ended before the JavaFX Application Thread became idle, e.g. because of a long
+     * animation.
+     *
+     * @return The number of timed out waits.
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public String toString() {
+        double averageMillis = waits == 0 ? 0 : (double) totalNanos / waits / TimeUnit.MILLISECONDS.toNanos(1);
+        return String.format("%d waits, %.2f ms on average, %.2f ms at most, %d timeouts", waits, averageMillis, (double) maxNanos / TimeUnit.MILLISECONDS.toNanos(1), timeouts);
+    }
+}
@@ -0,0 +1,43 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails a test if the JavaFX Application Thread is blocked for longer than the given threshold.
+ * <p>
+ * While a test of an annotated class runs, a watchdog thread posts heartbeats to the JavaFX Application Thread. If a
+ * heartbeat is not processed within the threshold, e.g. because an event handler calls <code>Thread.sleep</code>,
+ * waits for blocking I/O or loops endlessly, the stack of the JavaFX Application Thread is sampled and the test fails
+ * at its next interaction or wait with the blocking frame of the student code. Without the annotation, the JavaFX
+ * Application Thread is not watched. Choose a threshold well above the longest task the application legitimately runs
+ * on the thread, also on a loaded grading host.
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface FxStallThreshold {
+
+    /**
+     * The time the JavaFX Application Thread may be blocked. A value of zero or less disables the watchdog, e.g. for a
+     * subclass of an annotated test class.
+     *
+     * @return The threshold.
+     */
+    long value();
+
+    /**
+     * The unit of the threshold.
+     *
+     * @return The time unit.
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
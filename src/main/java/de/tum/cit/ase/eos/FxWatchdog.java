@@ -0,0 +1,208 @@
+package de.tum.cit.ase.eos;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javafx.application.Platform;
+
+import org.opentest4j.AssertionFailedError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects when the JavaFX Application Thread is blocked.
+ * <p>
+ * A watchdog thread posts a heartbeat to the JavaFX Application Thread and waits for it to be processed. If the
+ * heartbeat is late by more than the threshold, the stack of the JavaFX Application Thread is sampled and the stall is
+ * reported to the test thread at the next interaction or wait, like a captured exception. Until the stall ends, the
+ * thread waiting for a robot interaction is interrupted repeatedly. Each watchdog reports only the first stall and
+ * stops watching afterwards.
+ * <p>
+ * Long tasks of Eos itself do not count as stalls. Tasks that only run code of Eos, such as indexing the scene graph,
+ * suspend the watchdog while they run. Tasks that also run code of the application, such as advancing the virtual FX
+ * time pulse by pulse, report their progress instead, so that only a single step blocking the thread is a stall. The
+ * threshold starts again when the last suspension ends or progress is reported.
+ *
+ * @see FxStallThreshold
+ */
+final class FxWatchdog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FxWatchdog.class);
+
+    private static final String THREAD_NAME = "eos-fx-watchdog";
+
+    /**
+     * The time between the processing of a heartbeat and posting the next one.
+     */
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 100;
+
+    private final Thread fxThread;
+
+    private final long thresholdMillis;
+
+    private final Thread thread;
+
+    private final CompletableFuture<String> stall = new CompletableFuture<>();
+
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    private final AtomicInteger suspensions = new AtomicInteger();
+
+    private volatile long progressNanos = System.nanoTime();
+
+    private volatile Thread interruptibleThread;
+
+    private FxWatchdog(Thread fxThread, long thresholdMillis) {
+        this.fxThread = fxThread;
+        this.thresholdMillis = thresholdMillis;
+        thread = new Thread(this::run, THREAD_NAME);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the JavaFX Application Thread. Must be called on the JavaFX Application Thread.
+     *
+     * @param thresholdMillis The time the JavaFX Application Thread may be blocked.
+     * @return The started watchdog.
+     */
+    static FxWatchdog start(long thresholdMillis) {
+        FxWatchdog watchdog = new FxWatchdog(Thread.currentThread(), thresholdMillis);
+        watchdog.thread.start();
+        return watchdog;
+    }
+
+    /**
+     * Stops watching. May be called from any thread.
+     */
+    void stop() {
+        thread.interrupt();
+    }
+
+    /**
+     * Completes the given future exceptionally as soon as a stall is detected, e.g. to wake up a test waiting for the
+     * JavaFX Application Thread.
+     *
+     * @param future The future to complete.
+     */
+    void completeOnStall(CompletableFuture<?> future) {
+        stall.thenAccept(message -> future.completeExceptionally(new AssertionFailedError(message)));
+    }
+
+    /**
+     * Sets the thread to interrupt when a stall is detected, e.g. a test thread waiting for the JavaFX Application
+     * Thread without a timeout.
+     *
+     * @param thread The thread to interrupt or <code>null</code> to interrupt no thread.
+     */
+    void setInterruptibleThread(Thread thread) {
+        interruptibleThread = thread;
+    }
+
+    /**
+     * Runs the given task of Eos on the JavaFX Application Thread without counting the time it blocks the thread
+     * against the threshold.
+     *
+     * @param task The task to run, which must not run code of the application under test.
+     */
+    void runSuspended(Runnable task) {
+        suspensions.incrementAndGet();
+        try {
+            task.run();
+        }
+        finally {
+            reportProgress();
+            suspensions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Restarts the threshold during a long task on the JavaFX Application Thread that consists of many short steps,
+     * e.g. after every pulse of virtual FX time. May be called from any thread.
+     */
+    void reportProgress() {
+        progressNanos = System.nanoTime();
+    }
+
+    /**
+     * Fails the test if a stall was detected and has not been reported yet. May be called from any thread.
+     *
+     * @throws AssertionFailedError If a stall was detected.
+     */
+    void check() {
+        String message = stall.getNow(null);
+        if (message != null && reported.compareAndSet(false, true)) {
+            fail(message);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                CompletableFuture<Void> heartbeat = new CompletableFuture<>();
+                Platform.runLater(() -> heartbeat.complete(null));
+                if (!awaitHeartbeat(heartbeat)) {
+                    reportStall();
+                    // Waits of the robot swallow interrupts, so the waiting thread is interrupted until it stops waiting
+                    while (!heartbeat.isDone()) {
+                        Thread waitingThread = interruptibleThread;
+                        if (waitingThread != null) {
+                            waitingThread.interrupt();
+                        }
+                        Thread.sleep(HEARTBEAT_INTERVAL_MILLIS);
+                    }
+                    return;
+                }
+                Thread.sleep(HEARTBEAT_INTERVAL_MILLIS);
+            }
+        }
+        catch (InterruptedException e) {
+            // Stopped
+        }
+        catch (ExecutionException | RuntimeException e) {
+            LOG.debug("Stopped watching the JavaFX Application Thread", e);
+        }
+    }
+
+    /**
+     * Waits for the given heartbeat, but not longer than the threshold since the later of posting the heartbeat and
+     * the last progress, outside of suspensions.
+     *
+     * @return <code>true</code> if the heartbeat was processed in time.
+     */
+    private boolean awaitHeartbeat(CompletableFuture<Void> heartbeat) throws InterruptedException, ExecutionException {
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        long deadline = System.nanoTime() + thresholdNanos;
+        while (true) {
+            try {
+                heartbeat.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                return true;
+            }
+            catch (TimeoutException e) {
+                if (suspensions.get() > 0) {
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_INTERVAL_MILLIS);
+                }
+                else if (System.nanoTime() - progressNanos < thresholdNanos) {
+                    deadline = progressNanos + thresholdNanos;
+                }
+                else {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void reportStall() {
+        StackTraceElement[] stackTrace = fxThread.getStackTrace();
+        String location = FxExceptionCapture.studentLocation(stackTrace);
+        if (location == null) {
+            location = stackTrace.length == 0 ? "" : "\n at " + stackTrace[0];
+        }
+        LOG.debug("The JavaFX Application Thread is blocked for more than {} ms{}", thresholdMillis, location);
+        stall.complete("The JavaFX Application Thread was blocked for more than " + thresholdMillis + " ms" + location);
+    }
+}
@@ -0,0 +1,230 @@
+package de.tum.cit.ase.eos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+
+/**
+ * Compares images pixel by pixel, e.g. a screenshot of a student GUI with a reference screenshot of the solution.
+ * <p>
+ * Two pixels match if none of their ARGB channels differs by more than the channel tolerance. Pixels inside ignored
+ * regions are not compared. A comparison succeeds if the number of mismatched pixels does not exceed the mismatch
+ * budget; it stops as soon as the budget is used up. Instances are immutable, every <code>with</code> method returns a
+ * new comparison.
+ *
+ * <pre>
+ * ImageComparison comparison = ImageComparison.create().withChannelTolerance(8).withMaxMismatchedPixels(100).ignoringRegion(0, 0, 200, 30);
+ * </pre>
+ *
+ * @see JavaFXTest#assertScreenshotMatches(String, ImageComparison)
+ */
+public final class ImageComparison {
+
+    private static final int HEATMAP_BACKGROUND_ALPHA = 0x40;
+
+    private final int channelTolerance;
+
+    private final long maxMismatchedPixels;
+
+    private final List<Rectangle2D> ignoredRegions;
+
+    private ImageComparison(int channelTolerance, long maxMismatchedPixels, List<Rectangle2D> ignoredRegions) {
+        this.channelTolerance = channelTolerance;
+        this.maxMismatchedPixels = maxMismatchedPixels;
+        this.ignoredRegions = ignoredRegions;
+    }
+
+    /**
+     * Creates an exact comparison: no channel tolerance, no mismatched pixels and no ignored regions.
+     *
+     * @return A new comparison.
+     */
+    public static ImageComparison create() {
+        return new ImageComparison(0, 0, List.of());
+    }
+
+    /**
+     * Returns a comparison that allows each ARGB channel of a pixel to differ by the given amount.
+     *
+     * @param channelTolerance The maximum difference per channel, between 0 and 255.
+     * @return A new comparison with the given tolerance.
+     */
+    public ImageComparison withChannelTolerance(int channelTolerance) {
+        if (channelTolerance < 0 || channelTolerance > 255) {
+            throw new IllegalArgumentException("The channel tolerance must be between 0 and 255, but was " + channelTolerance);
+        }
+        return new ImageComparison(channelTolerance, maxMismatchedPixels, ignoredRegions);
+    }
+
+    /**
+     * Returns a comparison that still succeeds if up to the given number of pixels do not match, e.g. because of the
+     * blinking caret of a focused text field.
+     *
+     * @param maxMismatchedPixels The mismatch budget.
+     * @return A new comparison with the given budget.
+     */
+    public ImageComparison withMaxMismatchedPixels(long maxMismatchedPixels) {
+        if (maxMismatchedPixels < 0) {
+            throw new IllegalArgumentException("The number of mismatched pixels must not be negative, but was " + maxMismatchedPixels);
+        }
+        return new ImageComparison(channelTolerance, maxMismatchedPixels, ignoredRegions);
+    }
+
+    /**
+     * Returns a comparison that ignores the pixels in the given region, e.g. for a clock or other content that
+     * legitimately differs.
+     *
+     * @param x      The x coordinate of the region in pixels.
+     * @param y      The y coordinate of the region in pixels.
+     * @param width  The width of the region in pixels.
+     * @param height The height of the region in pixels.
+     * @return A new comparison that additionally ignores the region.
+     */
+    public ImageComparison ignoringRegion(double x, double y, double width, double height) {
+        List<Rectangle2D> regions = new ArrayList<>(ignoredRegions);
+        regions.add(new Rectangle2D(x, y, width, height));
+        return new ImageComparison(channelTolerance, maxMismatchedPixels, List.copyOf(regions));
+    }
+
+    /**
+     * Compares the given image with the expected one.
+     *
+     * @param actual   The image to check.
+     * @param expected The reference image.
+     * @return The result of the comparison.
+     */
+    public Result compare(Image actual, Image expected) {
+        int width = (int) expected.getWidth();
+        int height = (int) expected.getHeight();
+        if ((int) actual.getWidth() != width || (int) actual.getHeight() != height) {
+            return new Result(false, -1, "The image has a size of " + (int) actual.getWidth() + "x" + (int) actual.getHeight() + " pixels, but the reference has a size of " + width
+                    + "x" + height + " pixels.");
+        }
+
+        int[] actualPixels = readPixels(actual, width, height);
+        int[] expectedPixels = readPixels(expected, width, height);
+        boolean[] ignoredColumns = new boolean[width];
+        long mismatchedPixels = 0;
+        for (int y = 0; y < height && mismatchedPixels <= maxMismatchedPixels; y++) {
+            boolean ignoresColumns = markIgnoredColumns(y, ignoredColumns);
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                if (!(ignoresColumns && ignoredColumns[x]) && difference(actualPixels[i], expectedPixels[i]) > channelTolerance && ++mismatchedPixels > maxMismatchedPixels) {
+                    break;
+                }
+            }
+        }
+
+        if (mismatchedPixels <= maxMismatchedPixels) {
+            return new Result(true, mismatchedPixels, mismatchedPixels + " of " + (long) width * height + " pixels differ from the reference.");
+        }
+        return new Result(false, mismatchedPixels, "More than " + maxMismatchedPixels + " of " + (long) width * height + " pixels differ from the reference.");
+    }
+
+    /**
+     * Creates a heatmap of the differences between two images of the same size. Matching and ignored pixels are shown
+     * as a faded version of the expected image, mismatched pixels in red with an intensity depending on the difference.
+     *
+     * @param actual   The image to check.
+     * @param expected The reference image.
+     * @return The heatmap as non-premultiplied ARGB pixels with the size of the expected image.
+     */
+    int[] heatmap(Image actual, Image expected) {
+        int width = (int) expected.getWidth();
+        int height = (int) expected.getHeight();
+        int[] actualPixels = readPixels(actual, width, height);
+        int[] heatmap = readPixels(expected, width, height);
+        boolean[] ignoredColumns = new boolean[width];
+        for (int y = 0; y < height; y++) {
+            boolean ignoresColumns = markIgnoredColumns(y, ignoredColumns);
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                int difference = difference(actualPixels[i], heatmap[i]);
+                if ((ignoresColumns && ignoredColumns[x]) || difference <= channelTolerance) {
+                    heatmap[i] = HEATMAP_BACKGROUND_ALPHA << 24 | (heatmap[i] & 0x00FFFFFF);
+                }
+                else {
+                    heatmap[i] = 0xFF000000 | (127 + difference / 2) << 16;
+                }
+            }
+        }
+        return heatmap;
+    }
+
+    private static int[] readPixels(Image image, int width, int height) {
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return pixels;
+    }
+
+    private boolean markIgnoredColumns(int y, boolean[] ignoredColumns) {
+        boolean ignoresColumns = false;
+        Arrays.fill(ignoredColumns, false);
+        for (Rectangle2D region : ignoredRegions) {
+            if (y >= region.getMinY() && y < region.getMaxY()) {
+                int from = Math.max(0, (int) Math.floor(region.getMinX()));
+                int to = Math.min(ignoredColumns.length, (int) Math.ceil(region.getMaxX()));
+                for (int x = from; x < to; x++) {
+                    ignoredColumns[x] = true;
+                    ignoresColumns = true;
+                }
+            }
+        }
+        return ignoresColumns;
+    }
+
+    private static int difference(int pixel, int otherPixel) {
+        int difference = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            difference = Math.max(difference, Math.abs((pixel >>> shift & 0xFF) - (otherPixel >>> shift & 0xFF)));
+        }
+        return difference;
+    }
+
+    /**
+     * The result of an image comparison.
+     */
+    public static final class Result {
+
+        private final boolean match;
+
+        private final long mismatchedPixels;
+
+        private final String message;
+
+        private Result(boolean match, long mismatchedPixels, String message) {
+            this.match = match;
+            this.mismatchedPixels = mismatchedPixels;
+            this.message = message;
+        }
+
+        /**
+         * Returns whether the images match within the tolerance and mismatch budget of the comparison.
+         *
+         * @return <code>true</code> if the images match.
+         */
+        public boolean isMatch() {
+            return match;
+        }
+
+        /**
+         * Returns the number of mismatched pixels. If the comparison stopped early because the mismatch budget was used
+         * up, this is the budget plus one. If the images have different sizes, this is <code>-1</code>.
+         *
+         * @return The number of mismatched pixels found.
+         */
+        public long getMismatchedPixels() {
+            return mismatchedPixels;
+        }
+
+        /**
+         * Returns a description of the result suitable for a test failure.
+         *
+         * @return The description.
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
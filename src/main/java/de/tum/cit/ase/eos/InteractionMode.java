@@ -0,0 +1,23 @@
+package de.tum.cit.ase.eos;
+
+/**
+ * Defines how {@link JavaFXTest} simulates user interaction.
+ *
+ * @see UseInteractionMode
+ * @see JavaFXTest#getInteractionMode()
+ */
+public enum InteractionMode {
+
+    /**
+     * Interactions are performed by the TestFX robot. The mouse is moved to the target, every key is pressed
+     * separately and the robot waits for the FX events after each step. This is the default.
+     */
+    ROBOT,
+
+    /**
+     * Interactions are performed by firing the corresponding mouse, key and input method events directly at the
+     * target on the JavaFX Application Thread. There is no robot motion and the test waits for the FX events only once
+     * per interaction. Picking, focus and the disabled state of nodes are still respected.
+     */
+    DIRECT
+}
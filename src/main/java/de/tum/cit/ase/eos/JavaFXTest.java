@@ -1,28 +1,59 @@
 package de.tum.cit.ase.eos;
 
-import static de.tum.cit.ase.eos.HelperClass.createInstance;
-import static de.tum.cit.ase.eos.HelperClass.invokeMethod;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import javafx.embed.swing.SwingFXUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ObservableValue;
 import javafx.geometry.Bounds;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.TextInputControl;
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.Duration;
 
-import javax.imageio.ImageIO;
-
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.MultipleFailuresError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testfx.api.FxRobot;
+import org.testfx.api.FxRobotException;
 import org.testfx.framework.junit5.ApplicationTest;
+import org.testfx.robot.Motion;
 import org.testfx.service.query.NodeQuery;
+import org.testfx.util.NodeQueryUtils;
+import org.testfx.util.WaitForAsyncUtils;
 
 /**
  * Base class for JavaFX tests.
@@ -35,6 +66,35 @@ public abstract class JavaFXTest extends ApplicationTest {
 
     private static final Logger LOG = LoggerFactory.getLogger(JavaFXTest.class);
 
+    private static final Map<Class<?>, SharedApplicationState> SHARED_APPLICATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * The interval in which the test thread checks for failures while it waits for the JavaFX Application Thread.
+     */
+    private static final long FX_THREAD_CHECK_INTERVAL_MILLIS = 100;
+
+    /**
+     * The system property that enables the leak tracking for test classes without a {@link LeakBudget}. Their leaks are
+     * only logged.
+     */
+    private static final String TRACK_LEAKS_PROPERTY = "eos.trackLeaks";
+
+    private InteractionMode interactionMode;
+
+    private FxExceptionCapture fxExceptionCapture;
+
+    private FxWatchdog fxWatchdog;
+
+    private DialogResponder dialogResponder;
+
+    private VirtualFxClock virtualFxClock;
+
+    private PaintSuppression paintSuppression;
+
+    private Stage primaryStage;
+
+    private Object application;
+
     /**
      * Returns the name of the JavaFX application class. This method should return the fully qualified class name of
      * the JavaFX application class under test.
@@ -45,18 +105,894 @@ public abstract class JavaFXTest extends ApplicationTest {
 
     /**
      * Starts the JavaFX application.
+     * <p>
+     * If the test class is annotated with {@link SharedApplication}, the application is only started for the first
+     * test of the class. For all following tests, the scene of the application is shown on the primary stage again
+     * and {@link #resetSharedApplication()} is called.
+     * <p>
+     * If the test class is annotated with {@link VirtualFxTime}, the animation timer is switched to virtual time before
+     * the application is started. If it is annotated with {@link SkipRendering}, scenes are no longer painted.
+     * Exceptions that are not caught on the JavaFX Application Thread fail the test, and so do stalls of the thread if
+     * the class is annotated with {@link FxStallThreshold}, see {@link #checkFxThread()}. Windows shown from now on are answered by the registered
+     * dialog responses, see {@link #respondToDialog(String, ButtonType)}.
      *
      * @param stage The primary stage of the JavaFX application.
      */
     @Override
     public final void start(Stage stage) {
-        Object app = createInstance(getAppClassName(), null);
-        invokeMethod(app, "start", false, new Class<?>[] { Stage.class }, stage);
+        long startTime = System.nanoTime();
+        primaryStage = stage;
+        fxExceptionCapture = FxExceptionCapture.install();
+        dialogResponder = DialogResponder.install(stage, AnnotationSupport.isAnnotated(getClass(), FailOnUnexpectedDialogs.class), fxExceptionCapture);
+        if (AnnotationSupport.isAnnotated(getClass(), VirtualFxTime.class)) {
+            virtualFxClock = VirtualFxClock.install();
+        }
+        if (AnnotationSupport.isAnnotated(getClass(), SkipRendering.class)) {
+            paintSuppression = PaintSuppression.install();
+        }
+        if (!AnnotationSupport.isAnnotated(getClass(), SharedApplication.class)) {
+            application = startApplication(stage);
+            return;
+        }
+
+        SharedApplicationState sharedApplication = SHARED_APPLICATIONS.get(getClass());
+        if (sharedApplication == null) {
+            Object app = startApplication(stage);
+            SHARED_APPLICATIONS.put(getClass(), new SharedApplicationState(app, stage.getScene(), System.nanoTime() - startTime));
+        }
+        else {
+            if (stage.getScene() != sharedApplication.getScene()) {
+                stage.setScene(sharedApplication.getScene());
+            }
+            stage.show();
+            resetSharedApplication();
+            sharedApplication.recordReuse(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Stops the JavaFX application and the mirroring of watched nodes. If the test class is annotated with
+     * {@link VirtualFxTime}, the animation timer runs in real time again afterwards. If it is annotated with
+     * {@link SkipRendering}, scenes are painted again.
+     */
+    @Override
+    public void stop() {
+        LeakTracker.getInstance().releaseApplicationParameters();
+        SceneMirror.getInstance().clear();
+        if (dialogResponder != null) {
+            dialogResponder.uninstall();
+        }
+        if (fxExceptionCapture != null) {
+            fxExceptionCapture.uninstall();
+        }
+        if (fxWatchdog != null) {
+            fxWatchdog.stop();
+        }
+        if (paintSuppression != null) {
+            paintSuppression.uninstall();
+            paintSuppression = null;
+        }
+        if (virtualFxClock != null) {
+            virtualFxClock.uninstall();
+            virtualFxClock = null;
+        }
+    }
+
+    /**
+     * Advances the time of all animations by the given duration, e.g. to let a <code>PauseTransition</code> finish.
+     * <p>
+     * If the test class is annotated with {@link VirtualFxTime}, all animation pulses of the duration are run
+     * immediately on a virtual clock. Only a single pulse blocking the JavaFX Application Thread for longer than the
+     * {@link FxStallThreshold} counts as a stall, not the whole duration. Otherwise, this method waits for the given
+     * duration in real time. In both cases, it waits for the resulting FX events afterwards.
+     *
+     * @param duration The time to advance the animations by.
+     */
+    protected void advanceFxTime(Duration duration) {
+        long nanos = Math.round(duration.toMillis() * 1_000_000);
+        if (virtualFxClock != null) {
+            FxWatchdog watchdog = fxWatchdog;
+            Runnable afterPulse = watchdog == null ? () -> {} : watchdog::reportProgress;
+            waitForFx(WaitForAsyncUtils.asyncFx(() -> virtualFxClock.advance(nanos, afterPulse)));
+        }
+        else {
+            WaitForAsyncUtils.sleep(nanos, TimeUnit.NANOSECONDS);
+        }
+        waitForFxIdle();
+    }
+
+    /**
+     * Waits until the JavaFX Application Thread is idle: the event queue is drained, no pulse is pending, no layout is
+     * needed and no finite animation is running. Indefinite animations and, with {@link VirtualFxTime}, all animations
+     * are ignored. The wait ends after one second at the latest; such a timeout is logged as a warning together with
+     * what kept the thread busy and counted in the {@link #getFxIdleStatistics() statistics}.
+     * <p>
+     * All interactions of Eos wait for the idle state as well, but do not wait for running animations, so that e.g. a
+     * long <code>FadeTransition</code> does not slow down every click. Call this method after an interaction to also
+     * wait for the animations it started. In the {@link InteractionMode#ROBOT ROBOT} mode, the TestFX robots
+     * additionally wait for FX events themselves.
+     */
+    protected void waitForFxIdle() {
+        waitForFxIdle(virtualFxClock == null);
+    }
+
+    private void waitForFxIdle(boolean includeAnimations) {
+        if (Platform.isFxApplicationThread()) {
+            return;
+        }
+        try {
+            FxIdle.getInstance().await(includeAnimations);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while waiting for the JavaFX Application Thread to become idle", e);
+        }
+        checkFxThread();
+    }
+
+    /**
+     * Fails the test if an exception was thrown but not caught on the JavaFX Application Thread since the test
+     * started, e.g. by an event handler of the application, or if the thread was blocked for longer than the
+     * {@link FxStallThreshold}. The failure names the exception or the stall and the first stack frame outside of the
+     * whitelisted test classes. Each problem fails the test only once.
+     * <p>
+     * All interactions and waits of Eos call this method, so a test fails right after the interaction that caused the
+     * problem instead of waiting for a change that never happens until the test times out.
+     */
+    protected void checkFxThread() {
+        if (fxExceptionCapture != null) {
+            fxExceptionCapture.check();
+        }
+        if (fxWatchdog != null) {
+            fxWatchdog.check();
+        }
+    }
+
+    /**
+     * Waits for the result of a task on the JavaFX Application Thread like {@link WaitForAsyncUtils#waitFor(Future)},
+     * but fails the test if the JavaFX Application Thread threw an exception or is blocked for longer than the
+     * {@link FxStallThreshold} in the meantime.
+     */
+    private <T> T waitForFx(Future<T> future) {
+        while (true) {
+            try {
+                return future.get(FX_THREAD_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                checkFxThread();
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return fail("Interrupted while waiting for the JavaFX Application Thread.", e);
+            }
+        }
+    }
+
+    /**
+     * Prepares the test once the application was started. Reports the leaks of previous tests and starts watching the
+     * JavaFX Application Thread for stalls.
+     * <p>
+     * Ares runs every lifecycle method in a thread of its own, so all preparations share a single method.
+     *
+     * @param testInfo The information about the current test.
+     */
+    @BeforeEach
+    void setUpTest(TestInfo testInfo) {
+        checkForLeaks(testInfo);
+        startFxWatchdog();
+    }
+
+    /**
+     * Finishes the test. Closes the windows the application left open and fails the test if an exception thrown on the
+     * JavaFX Application Thread or a stall of the thread was not reported by an interaction or wait of the test yet.
+     *
+     * @param testInfo The information about the finished test.
+     */
+    @AfterEach
+    void tearDownTest(TestInfo testInfo) {
+        closeLeftoverWindows(testInfo);
+        checkFxThread();
+    }
+
+    /**
+     * Starts watching the JavaFX Application Thread for stalls once the application was started if the test class is
+     * annotated with an {@link FxStallThreshold} greater than zero.
+     */
+    private void startFxWatchdog() {
+        long thresholdMillis = AnnotationSupport.findAnnotation(getClass(), FxStallThreshold.class).map(threshold -> threshold.unit().toMillis(threshold.value()))
+                .orElse(0L);
+        if (thresholdMillis > 0) {
+            fxWatchdog = waitForFx(WaitForAsyncUtils.asyncFx(() -> FxWatchdog.start(thresholdMillis)));
+        }
+    }
+
+    /**
+     * Returns how often and how long all tests so far waited for the JavaFX Application Thread to become idle.
+     *
+     * @return A snapshot of the statistics.
+     * @see #waitForFxIdle()
+     */
+    protected FxIdleStatistics getFxIdleStatistics() {
+        return FxIdle.getInstance().getStatistics();
+    }
+
+    /**
+     * Waits until the given property has the expected value. The test thread is woken up as soon as the property
+     * changes, without polling. The wait is bounded by the timeout of the test, e.g. set by
+     * {@link de.tum.in.test.api.StrictTimeout}.
+     *
+     * <pre>
+     * awaitProperty(label.textProperty(), "Character count: 13");
+     * </pre>
+     *
+     * @param property The property to observe.
+     * @param expected The expected value.
+     * @return The value of the property.
+     * @param <T> The type of the property.
+     */
+    protected <T> T awaitProperty(ObservableValue<T> property, T expected) {
+        return awaitPropertyMatching(property, value -> Objects.equals(value, expected), null);
+    }
+
+    /**
+     * Waits until the given property has the expected value or fails the test after the given timeout.
+     *
+     * @param property The property to observe.
+     * @param expected The expected value.
+     * @param timeout  The maximum time to wait.
+     * @return The value of the property.
+     * @param <T> The type of the property.
+     * @see #awaitProperty(ObservableValue, Object)
+     */
+    protected <T> T awaitProperty(ObservableValue<T> property, T expected, Duration timeout) {
+        return awaitPropertyMatching(property, value -> Objects.equals(value, expected), timeout);
+    }
+
+    /**
+     * Waits until the value of the given property fulfills the given condition or fails the test after the given
+     * timeout.
+     *
+     * @param property  The property to observe.
+     * @param condition The condition to wait for. It is evaluated on the JavaFX Application Thread.
+     * @param timeout   The maximum time to wait or <code>null</code> to wait until the test times out.
+     * @return The value of the property.
+     * @param <T> The type of the property.
+     * @see #awaitProperty(ObservableValue, Object)
+     */
+    protected <T> T awaitPropertyMatching(ObservableValue<T> property, Predicate<? super T> condition, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        InvalidationListener listener = observable -> {
+            try {
+                T value = property.getValue();
+                if (condition.test(value)) {
+                    result.complete(value);
+                }
+            }
+            catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        waitForFx(WaitForAsyncUtils.asyncFx(() -> {
+            listener.invalidated(property);
+            property.addListener(listener);
+        }));
+        try {
+            return await(result, timeout, () -> "The value " + property.getValue() + " did not change as expected within " + (long) timeout.toMillis() + " ms.");
+        }
+        finally {
+            Platform.runLater(() -> property.removeListener(listener));
+        }
+    }
+
+    /**
+     * Waits until a node matching the given query is shown, e.g. a dialog opened by an action. The test thread is
+     * woken up by changes of the scene graph, without polling. The wait is bounded by the timeout of the test, e.g.
+     * set by {@link de.tum.in.test.api.StrictTimeout}.
+     *
+     * @param query The query to match.
+     * @return The first matching node.
+     * @see NodeQuery#lookup(String)
+     */
+    protected Node awaitNode(String query) {
+        return awaitNode(query, null);
+    }
+
+    /**
+     * Waits until a node matching the given query is shown or fails the test after the given timeout.
+     *
+     * @param query   The query to match.
+     * @param timeout The maximum time to wait or <code>null</code> to wait until the test times out.
+     * @return The first matching node.
+     * @see #awaitNode(String)
+     */
+    protected Node awaitNode(String query, Duration timeout) {
+        SceneGraphIndex index = sceneGraphIndex();
+        CompletableFuture<Node> result = new CompletableFuture<>();
+        AtomicBoolean checkPending = new AtomicBoolean();
+        Runnable check = () -> {
+            checkPending.set(false);
+            try {
+                queryAll(query).stream().findFirst().ifPresent(result::complete);
+            }
+            catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        // Changes come in bursts, so the lookup runs once after each burst
+        Runnable listener = () -> {
+            if (!result.isDone() && checkPending.compareAndSet(false, true)) {
+                Platform.runLater(check);
+            }
+        };
+        waitForFx(WaitForAsyncUtils.asyncFx(() -> {
+            index.addChangeListener(listener);
+            check.run();
+        }));
+        try {
+            return await(result, timeout, () -> "No node matching the query \"" + query + "\" was shown within " + (long) timeout.toMillis() + " ms.");
+        }
+        finally {
+            Platform.runLater(() -> index.removeChangeListener(listener));
+        }
+    }
+
+    /**
+     * Answers the dialogs with the given title that the application shows during this test by pressing the button of
+     * the given type, e.g. the OK button of an <code>Alert</code>. Dialogs are answered right after they are shown,
+     * also if the application waits for them with <code>showAndWait()</code>. Register the response before the action
+     * that opens the dialog.
+     *
+     * <pre>
+     * respondToDialog("Invalid input", ButtonType.OK);
+     * clickOn("Count Characters");
+     * </pre>
+     *
+     * @param title  The title of the dialog.
+     * @param button The type of the button to press.
+     * @see FailOnUnexpectedDialogs
+     */
+    protected void respondToDialog(String title, ButtonType button) {
+        dialogResponder.respondToDialog(title, button);
+    }
+
+    /**
+     * Answers the windows matching the given condition that the application shows during this test, e.g. custom
+     * modal stages. The condition and the response are run on the JavaFX Application Thread right after the window is
+     * shown. Responses are checked in the order they were registered; only the first matching one is run.
+     *
+     * @param condition The condition the stage has to fulfill.
+     * @param response  The response to the stage, e.g. closing it.
+     * @see #respondToDialog(String, ButtonType)
+     */
+    protected void respondToWindow(Predicate<? super Stage> condition, Consumer<? super Stage> response) {
+        dialogResponder.respond(condition, response);
+    }
+
+    private <T> T await(CompletableFuture<T> result, Duration timeout, Supplier<String> timeoutMessage) {
+        if (fxExceptionCapture != null) {
+            fxExceptionCapture.completeOnException(result);
+        }
+        if (fxWatchdog != null) {
+            fxWatchdog.completeOnStall(result);
+        }
+        try {
+            if (timeout == null) {
+                return result.get();
+            }
+            return result.get(Math.round(timeout.toMillis() * 1_000_000), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            return fail(waitForFx(WaitForAsyncUtils.asyncFx(timeoutMessage::get)));
+        }
+        catch (ExecutionException e) {
+            checkFxThread();
+            return fail("The condition could not be checked.", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fail("Interrupted while waiting for the condition.", e);
+        }
+    }
+
+    @Override
+    public FxRobot interact(Runnable runnable) {
+        waitForFx(WaitForAsyncUtils.asyncFx(runnable));
+        waitForFxIdle(false);
+        return this;
+    }
+
+    @Override
+    public <T> FxRobot interact(Callable<T> callable) {
+        waitForFx(WaitForAsyncUtils.asyncFx(callable));
+        waitForFxIdle(false);
+        return this;
+    }
+
+    @Override
+    public FxRobot interrupt() {
+        waitForFxIdle(false);
+        return this;
+    }
+
+    private Object startApplication(Stage stage) {
+        ApplicationHandles handles = ApplicationHandles.forClass(getAppClassName());
+        Object app = handles.newInstance();
+        handles.start(app, stage);
+        return app;
+    }
+
+    /**
+     * Returns whether the objects of the tests are tracked, which costs a garbage collection before most tests. Leaks
+     * are tracked for test classes annotated with {@link LeakBudget} and, if the system property
+     * <code>eos.trackLeaks</code> is <code>true</code>, for all test classes.
+     */
+    private boolean isTrackingLeaks() {
+        return AnnotationSupport.isAnnotated(getClass(), LeakBudget.class) || Boolean.getBoolean(TRACK_LEAKS_PROPERTY);
+    }
+
+    /**
+     * Reports the objects of previous tests that are still reachable and starts tracking the application instance and
+     * the scene of this test. Objects of a test can only be collected once the next application replaced its scene, so
+     * leaks are reported by the following test. If the test class is annotated with {@link LeakBudget}, the test fails
+     * if more objects of previous tests of the same class leaked than tolerated. Leaks of other test classes are only
+     * logged.
+     *
+     * @param testInfo The information about the current test.
+     */
+    private void checkForLeaks(TestInfo testInfo) {
+        if (!isTrackingLeaks()) {
+            return;
+        }
+        LeakTracker leakTracker = LeakTracker.getInstance();
+        Map<Class<?>, List<String>> leaks = leakTracker.findLeaks();
+        if (application != null) {
+            leakTracker.track(application, getClass(), testName(testInfo));
+            Scene scene = primaryStage.getScene();
+            if (scene != null) {
+                leakTracker.track(scene, getClass(), testName(testInfo));
+            }
+        }
+        leaks.forEach((testClass, classLeaks) -> LOG.warn("{} objects of previous tests of {} are still reachable:\n{}", classLeaks.size(), testClass.getSimpleName(),
+                String.join("\n", classLeaks)));
+
+        List<String> ownLeaks = leaks.getOrDefault(getClass(), List.of());
+        int budget = AnnotationSupport.findAnnotation(getClass(), LeakBudget.class).map(LeakBudget::value).orElse(Integer.MAX_VALUE);
+        if (ownLeaks.size() > budget) {
+            fail(ownLeaks.size() + " objects of previous tests are still reachable, but at most " + budget + " are tolerated:\n" + String.join("\n", ownLeaks));
+        }
+    }
+
+    /**
+     * Closes all windows except the primary stage that the application left open and tracks the stages among them
+     * until the next test if leaks are tracked. For a {@link SharedApplication}, the primary stage stays open for the
+     * next test of the class.
+     *
+     * @param testInfo The information about the finished test.
+     */
+    private void closeLeftoverWindows(TestInfo testInfo) {
+        String testName = testName(testInfo);
+        boolean trackingLeaks = isTrackingLeaks();
+        int closedWindows = waitForFx(WaitForAsyncUtils.asyncFx(() -> {
+            int count = 0;
+            for (Window window : new ArrayList<>(Window.getWindows())) {
+                if (window != primaryStage && window.isShowing()) {
+                    if (trackingLeaks && window instanceof Stage) {
+                        LeakTracker.getInstance().track(window, getClass(), testName);
+                    }
+                    window.hide();
+                    count++;
+                }
+            }
+            return count;
+        }));
+        if (closedWindows > 0) {
+            LOG.debug("Closed {} windows left open by {}", closedWindows, testName);
+        }
+    }
+
+    private static String testName(TestInfo testInfo) {
+        return testInfo.getTestClass().map(Class::getSimpleName).map(name -> name + ".").orElse("") + testInfo.getDisplayName();
+    }
+
+    /**
+     * Resets the state of a shared application before a test reuses it. This method is only called for test classes
+     * annotated with {@link SharedApplication}, before every test except the first one of the class. It is called on
+     * the JavaFX Application Thread after the scene is shown again.
+     * <p>
+     * The default implementation does nothing. Override it to e.g. clear text fields changed by a previous test.
+     */
+    protected void resetSharedApplication() {
+        // Nothing to reset by default
+    }
+
+    /**
+     * Releases the application shared by the tests of the finished class and logs the startup time saved by sharing
+     * it.
+     *
+     * @param testInfo The information about the finished test class.
+     */
+    @AfterAll
+    static void releaseSharedApplication(TestInfo testInfo) {
+        testInfo.getTestClass().map(SHARED_APPLICATIONS::remove).ifPresent(sharedApplication -> {
+            LOG.info("Shared application of {} started once in {} ms and reused {} times, saving about {} ms", testInfo.getDisplayName(),
+                    sharedApplication.getStartupNanos() / 1_000_000, sharedApplication.getReuseCount(), sharedApplication.getSavedNanos() / 1_000_000);
+        });
+    }
+
+    /**
+     * Logs the statistics of the waits for the JavaFX Application Thread to become idle.
+     *
+     * @param testInfo The information about the finished test class.
+     */
+    @AfterAll
+    static void logFxIdleStatistics(TestInfo testInfo) {
+        LOG.debug("Idle waits after {}: {}", testInfo.getDisplayName(), FxIdle.getInstance().getStatistics());
+    }
+
+    /**
+     * Returns the interaction mode used by the <code>clickOn</code>, <code>doubleClickOn</code>,
+     * <code>rightClickOn</code>, <code>write</code>, <code>eraseText</code>, <code>type</code> and <code>push</code>
+     * methods. By default, the mode is taken from the {@link UseInteractionMode} annotation of the test class. Without
+     * the annotation, the TestFX robot is used.
+     *
+     * @return The interaction mode of this test.
+     * @see InteractionMode
+     */
+    protected InteractionMode getInteractionMode() {
+        if (interactionMode == null) {
+            interactionMode = AnnotationSupport.findAnnotation(getClass(), UseInteractionMode.class).map(UseInteractionMode::value).orElse(InteractionMode.ROBOT);
+        }
+        return interactionMode;
+    }
+
+    @Override
+    public FxRobot clickOn(Node node, Motion motion, MouseButton... buttons) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return clickDirectly(node, 1, buttons);
+        }
+        return robotInteraction(() -> super.clickOn(node, motion, buttons));
+    }
+
+    @Override
+    public FxRobot clickOn(String query, Motion motion, MouseButton... buttons) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return clickDirectly(visibleNode(query), 1, buttons);
+        }
+        return robotInteraction(() -> super.clickOn(query, motion, buttons));
+    }
+
+    @Override
+    public FxRobot doubleClickOn(Node node, Motion motion, MouseButton... buttons) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return clickDirectly(node, 2, buttons);
+        }
+        return robotInteraction(() -> super.doubleClickOn(node, motion, buttons));
+    }
+
+    @Override
+    public FxRobot doubleClickOn(String query, Motion motion, MouseButton... buttons) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return clickDirectly(visibleNode(query), 2, buttons);
+        }
+        return robotInteraction(() -> super.doubleClickOn(query, motion, buttons));
+    }
+
+    @Override
+    public FxRobot rightClickOn(Node node, Motion motion) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return clickDirectly(node, 1, MouseButton.SECONDARY);
+        }
+        return robotInteraction(() -> super.rightClickOn(node, motion));
+    }
+
+    @Override
+    public FxRobot rightClickOn(String query, Motion motion) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return clickDirectly(visibleNode(query), 1, MouseButton.SECONDARY);
+        }
+        return robotInteraction(() -> super.rightClickOn(query, motion));
+    }
+
+    @Override
+    public FxRobot release(KeyCode... keys) {
+        // TestFX releases all keys and buttons after every test and waits for FX events even if none is pressed
+        if (keys.length == 0 && robotContext().getKeyboardRobot().getPressedKeys().isEmpty()) {
+            return this;
+        }
+        return super.release(keys);
+    }
+
+    @Override
+    public FxRobot release(MouseButton... buttons) {
+        if (buttons.length == 0 && robotContext().getMouseRobot().getPressedButtons().isEmpty()) {
+            return this;
+        }
+        return super.release(buttons);
+    }
+
+    @Override
+    public FxRobot write(String text) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            Scene scene = targetWindow().getScene();
+            return interactDirectly(() -> DirectInteraction.write(scene, text));
+        }
+        return robotInteraction(() -> super.write(text));
+    }
+
+    @Override
+    public FxRobot write(char character) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return write(String.valueOf(character));
+        }
+        return robotInteraction(() -> super.write(character));
+    }
+
+    @Override
+    public FxRobot eraseText(int amount) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            return type(KeyCode.BACK_SPACE, amount);
+        }
+        return robotInteraction(() -> super.eraseText(amount));
+    }
+
+    @Override
+    public FxRobot type(KeyCode... keys) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            Scene scene = targetWindow().getScene();
+            return interactDirectly(() -> DirectInteraction.type(scene, keys));
+        }
+        return robotInteraction(() -> super.type(keys));
+    }
+
+    @Override
+    public FxRobot type(KeyCode key, int times) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            KeyCode[] keys = new KeyCode[times];
+            Arrays.fill(keys, key);
+            return type(keys);
+        }
+        return robotInteraction(() -> super.type(key, times));
+    }
+
+    @Override
+    public FxRobot push(KeyCode... keys) {
+        if (getInteractionMode() == InteractionMode.DIRECT) {
+            Scene scene = targetWindow().getScene();
+            return interactDirectly(() -> DirectInteraction.push(scene, keys));
+        }
+        return robotInteraction(() -> super.push(keys));
+    }
+
+    /**
+     * Enters the given text into the given text field or text area in bulk. This is much faster than
+     * <code>clickOn(control).write(text)</code> for long inputs, as the text is not typed key by key.
+     * <p>
+     * The control is focused and the caret is moved to the end of its text. Each line of the text is then committed
+     * with a single input method event, so text formatters and listeners see the same edits as when the text is typed.
+     * Line breaks and tabs are typed as <code>ENTER</code> and <code>TAB</code> keys in between. Waits for the JavaFX
+     * Application Thread to become idle only once, after the whole text was entered. Works in every
+     * {@link InteractionMode}.
+     *
+     * <pre>
+     * fillText(getNodeOfType(TextArea.class, "#input"), "first line\nsecond line");
+     * </pre>
+     *
+     * @param control The control to enter the text into. It must be shown, enabled and editable.
+     * @param text    The text to enter.
+     * @return This robot.
+     */
+    protected FxRobot fillText(TextInputControl control, String text) {
+        String problem = waitForFx(WaitForAsyncUtils.asyncFx(() -> {
+            Scene scene = control.getScene();
+            if (scene == null || scene.getWindow() == null) {
+                return "Text input control " + control + " is not shown in a window.";
+            }
+            if (control.isDisabled() || !control.isEditable() || control.getSkin() == null) {
+                return "Text input control " + control + " is disabled, not editable or not shown.";
+            }
+            targetWindow(scene.getWindow());
+            control.requestFocus();
+            control.end();
+            try {
+                DirectInteraction.fillText(control, text);
+            }
+            catch (RuntimeException e) {
+                reportToUncaughtExceptionHandler(e);
+            }
+            return null;
+        }));
+        if (problem != null) {
+            fail(problem);
+        }
+        waitForFxIdle(false);
+        return this;
+    }
+
+    private FxRobot robotInteraction(Supplier<FxRobot> interaction) {
+        // The robot waits for the JavaFX Application Thread without a timeout, so a stall interrupts the wait
+        FxWatchdog watchdog = fxWatchdog;
+        if (watchdog != null) {
+            watchdog.setInterruptibleThread(Thread.currentThread());
+        }
+        try {
+            interaction.get();
+        }
+        catch (RuntimeException e) {
+            checkFxThread();
+            throw e;
+        }
+        finally {
+            if (watchdog != null) {
+                watchdog.setInterruptibleThread(null);
+            }
+        }
+        checkFxThread();
+        return this;
+    }
+
+    private FxRobot clickDirectly(Node node, int clickCount, MouseButton... buttons) {
+        if (node.getScene() == null || node.getScene().getWindow() == null) {
+            fail("Node " + node + " is not shown in a window.");
+        }
+        targetWindow(node);
+        return interactDirectly(() -> DirectInteraction.clickOn(node, clickCount, buttons));
+    }
+
+    private Node visibleNode(String query) {
+        Set<Node> nodes = queryAll(query);
+        if (nodes.isEmpty()) {
+            throw new FxRobotException("the query \"" + query + "\" returned no nodes.");
+        }
+        return from(nodes).match(NodeQueryUtils.isVisible()).tryQuery()
+                .orElseThrow(() -> new FxRobotException("the query \"" + query + "\" returned " + nodes.size() + " nodes, but no nodes were visible."));
+    }
+
+    private FxRobot interactDirectly(Runnable interaction) {
+        waitForFx(WaitForAsyncUtils.asyncFx(() -> {
+            try {
+                interaction.run();
+            }
+            catch (RuntimeException e) {
+                reportToUncaughtExceptionHandler(e);
+            }
+        }));
+        waitForFxIdle(false);
+        return this;
+    }
+
+    private static void reportToUncaughtExceptionHandler(RuntimeException e) {
+        // Exceptions of event handlers are reported like for real input instead of failing the interaction
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * Runs the given checks on the JavaFX Application Thread in a single round trip, instead of switching threads for
+     * every property read or assertion.
+     * <p>
+     * All checks are run, even if some of them fail. A single failure is rethrown as is, multiple failures are
+     * reported together like by {@link org.junit.jupiter.api.Assertions#assertAll(Executable...)}.
+     *
+     * <pre>
+     * onFx(() -&gt; assertEquals("Hello", label.getText()), () -&gt; assertTrue(button.isDisabled()));
+     * </pre>
+     *
+     * @param checks The reads and assertions to run.
+     */
+    protected void onFx(Executable... checks) {
+        onFx(null, checks);
+    }
+
+    /**
+     * Runs the given checks on the JavaFX Application Thread in a single round trip.
+     *
+     * @param heading The heading of the failure if multiple checks fail, may be <code>null</code>.
+     * @param checks  The reads and assertions to run.
+     * @see #onFx(Executable...)
+     */
+    protected void onFx(String heading, Executable... checks) {
+        List<Throwable> failures;
+        if (Platform.isFxApplicationThread()) {
+            failures = runChecks(checks);
+        }
+        else {
+            failures = waitForFx(WaitForAsyncUtils.asyncFx(() -> runChecks(checks)));
+        }
+
+        if (failures.size() == 1) {
+            Throwable failure = failures.get(0);
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+        }
+        if (!failures.isEmpty()) {
+            MultipleFailuresError error = new MultipleFailuresError(heading, failures);
+            failures.forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    private static List<Throwable> runChecks(Executable... checks) {
+        List<Throwable> failures = new ArrayList<>();
+        for (Executable check : checks) {
+            try {
+                check.execute();
+            }
+            catch (VirtualMachineError e) {
+                throw e;
+            }
+            catch (Throwable t) {
+                failures.add(t);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Starts mirroring the state of the given nodes for this test, so that it can be read from the test thread
+     * without switching to the JavaFX Application Thread.
+     * <p>
+     * The text, visibility, disabled state, bounds, style classes and selection of all watched nodes are read at the
+     * end of every pulse and published together. The state is read once right away, later changes are visible after
+     * the next pulse, e.g. after any interaction or {@link #waitForFxIdle()}.
+     *
+     * <pre>
+     * watchNodes(label, button);
+     * clickOn(button);
+     * assertEquals("Character count: 5", getNodeSnapshot(label).getText());
+     * </pre>
+     *
+     * @param nodes The nodes to watch.
+     * @see #getNodeSnapshot(Node)
+     * @see #getNodeSnapshots()
+     */
+    protected void watchNodes(Node... nodes) {
+        List<Node> watched = List.of(nodes);
+        if (Platform.isFxApplicationThread()) {
+            SceneMirror.getInstance().watch(watched);
+        }
+        else {
+            waitForFx(WaitForAsyncUtils.asyncFx(() -> SceneMirror.getInstance().watch(watched)));
+        }
+    }
+
+    /**
+     * Returns the state of the given watched node at the end of the last pulse. The state is read without switching to
+     * the JavaFX Application Thread.
+     *
+     * @param node A node passed to {@link #watchNodes(Node...)} before.
+     * @return The snapshot of the node.
+     */
+    protected NodeSnapshot getNodeSnapshot(Node node) {
+        NodeSnapshot snapshot = SceneMirror.getInstance().getSnapshots().get(node);
+        if (snapshot == null) {
+            fail("Node " + node + " is not watched, call watchNodes first.");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the states of all watched nodes at the end of the last pulse. All snapshots are taken at the end of the
+     * same pulse, so they are consistent with each other.
+     *
+     * @return An unmodifiable map from the watched nodes to their snapshots, in the order they were watched.
+     */
+    protected Map<Node, NodeSnapshot> getNodeSnapshots() {
+        return SceneMirror.getInstance().getSnapshots();
     }
 
     /**
      * Captures a screenshot of the current window and saves it to a file in the <code>screenshots</code> directory.
      * <p>
+     * The screenshot is encoded and written in the background, use {@link #flushScreenshots()} to wait until the file
+     * exists.
+     * <p>
      * This method is currently supported only on macOS (and other OSs with graphical components) when using the
      * <code>testLocally</code> task. However, it also functions in terminal-based environments, such as Docker
      * containers, when using the <code>test</code> task.
@@ -64,27 +1000,150 @@ public abstract class JavaFXTest extends ApplicationTest {
      * @param fileName The name of the file to save the screenshot to.
      */
     protected void captureAndSaveScreenshot(String fileName) {
-        Scene scene = robotContext().getWindowFinder().listWindows().get(0).getScene();
-        Bounds bounds = scene.getRoot().localToScreen(scene.getRoot().getBoundsInLocal());
-        Rectangle2D region = new Rectangle2D(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
-        Image screenshot = robotContext().getCaptureSupport().captureRegion(region);
+        saveScreenshot(fileName, captureScreenshot(currentRoot()));
+    }
+
+    /**
+     * Captures a screenshot of the bounds of the given node and saves it to a file in the <code>screenshots</code>
+     * directory.
+     *
+     * @param fileName The name of the file to save the screenshot to.
+     * @param node     The node to capture. It must be shown in a window.
+     * @see #captureAndSaveScreenshot(String)
+     */
+    protected void captureAndSaveScreenshot(String fileName, Node node) {
+        saveScreenshot(fileName, captureScreenshot(node));
+    }
+
+    /**
+     * Captures a screenshot of the current window and compares it exactly with the given reference image.
+     *
+     * @param referenceFile The path of the reference PNG, relative to the working directory.
+     * @see #assertScreenshotMatches(String, ImageComparison)
+     */
+    protected void assertScreenshotMatches(String referenceFile) {
+        assertScreenshotMatches(referenceFile, ImageComparison.create());
+    }
+
+    /**
+     * Captures a screenshot of the current window and compares it with the given reference image, e.g. a screenshot of
+     * the reference solution. If the comparison fails, a heatmap of the differing pixels is saved to the
+     * <code>screenshots</code> directory and the test fails.
+     * <p>
+     * Neither the screenshot nor the reference image are kept after the comparison.
+     *
+     * @param referenceFile The path of the reference PNG, relative to the working directory.
+     * @param comparison    The tolerances of the comparison.
+     */
+    protected void assertScreenshotMatches(String referenceFile, ImageComparison comparison) {
+        assertScreenshotMatches(referenceFile, currentRoot(), comparison);
+    }
+
+    /**
+     * Captures a screenshot of the bounds of the given node and compares it with the given reference image.
+     *
+     * @param referenceFile The path of the reference PNG, relative to the working directory.
+     * @param node          The node to capture. It must be shown in a window.
+     * @param comparison    The tolerances of the comparison.
+     * @see #assertScreenshotMatches(String, ImageComparison)
+     */
+    protected void assertScreenshotMatches(String referenceFile, Node node, ImageComparison comparison) {
+        File file = new File(referenceFile);
+        if (!file.isFile()) {
+            fail("Reference image " + referenceFile + " does not exist.");
+        }
+        Image reference = new Image(file.toURI().toString());
+        if (reference.isError()) {
+            fail("Reference image " + referenceFile + " could not be loaded.", reference.getException());
+        }
+
+        Image screenshot = captureScreenshot(node);
+        ImageComparison.Result result = comparison.compare(screenshot, reference);
+        if (!result.isMatch()) {
+            String message = "The GUI does not look as expected. " + result.getMessage();
+            if (result.getMismatchedPixels() >= 0) {
+                String heatmapFile = normalizeFileName(file.getName().replaceFirst("\\.png$", "") + "-diff", "png");
+                saveScreenshot(heatmapFile, comparison.heatmap(screenshot, reference), (int) reference.getWidth(), (int) reference.getHeight());
+                message += " The differences are highlighted in screenshots/" + heatmapFile + ".";
+            }
+            fail(message);
+        }
+    }
+
+    private Node currentRoot() {
+        return robotContext().getWindowFinder().listWindows().get(0).getScene().getRoot();
+    }
 
-        saveScreenshot(fileName, screenshot);
+    /**
+     * Captures the screen bounds of the given node. On a Monocle screen only these bounds are copied from the
+     * framebuffer, otherwise the robot captures them. If the rendering is skipped, all windows are painted first.
+     */
+    private Image captureScreenshot(Node node) {
+        Bounds bounds = node.localToScreen(node.getBoundsInLocal());
+        if (bounds == null) {
+            fail("Node " + node + " is not shown in a window.");
+        }
+        if (paintSuppression != null) {
+            waitForFx(paintSuppression.paintNow());
+        }
+        FramebufferCapture framebuffer = FramebufferCapture.getInstance();
+        if (framebuffer == null) {
+            Rectangle2D region = new Rectangle2D(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
+            return robotContext().getCaptureSupport().captureRegion(region);
+        }
+        return waitForFx(WaitForAsyncUtils.asyncFx(() -> framebuffer.capture((int) bounds.getMinX(), (int) bounds.getMinY(), (int) bounds.getWidth(), (int) bounds.getHeight())));
     }
 
     private void saveScreenshot(String fileName, Image screenshot) {
+        try {
+            ScreenshotWriter.getInstance().submit(screenshotFile(fileName), screenshot);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while saving screenshot", e);
+        }
+    }
+
+    private void saveScreenshot(String fileName, int[] pixels, int width, int height) {
+        try {
+            ScreenshotWriter.getInstance().submit(screenshotFile(fileName), pixels, width, height);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while saving screenshot", e);
+        }
+    }
+
+    private File screenshotFile(String fileName) {
         final String screenshotPath = "screenshots";
         final String fileExtension = "png";
 
-        File screenshotFile = new File(screenshotPath + "/" + normalizeFileName(fileName, fileExtension));
+        return new File(screenshotPath + "/" + normalizeFileName(fileName, fileExtension));
+    }
+
+    /**
+     * Waits until all screenshots taken so far are written to the <code>screenshots</code> directory. Screenshots are
+     * encoded and written in the background; all pending screenshots are written at the latest when the test class
+     * finished.
+     */
+    protected void flushScreenshots() {
         try {
-            ImageIO.write(SwingFXUtils.fromFXImage(screenshot, null), fileExtension, screenshotFile);
+            ScreenshotWriter.getInstance().flush();
         }
-        catch (IOException e) {
-            LOG.error("Failed to save screenshot", e);
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while waiting for screenshots to be saved", e);
         }
     }
 
+    /**
+     * Writes all pending screenshots of the finished test class and stops the background writer.
+     */
+    @AfterAll
+    static void closeScreenshotWriter() {
+        ScreenshotWriter.closeInstance();
+    }
+
     private String normalizeFileName(String fileName, String fileExtension) {
         fileName = fileName.replaceAll("[^a-zA-Z0-9.-]", "_");
         return fileName.endsWith("." + fileExtension) ? fileName : fileName + "." + fileExtension;
@@ -117,6 +1176,12 @@ public abstract class JavaFXTest extends ApplicationTest {
 
     /**
      * Returns all nodes of the given type that match the given query.
+     * <p>
+     * CSS selectors starting with a style class or id, e.g. <code>.button</code>, <code>#form &gt; .text-field</code> or
+     * <code>.list-cell:selected</code>, are compiled once and answered with the help of an index of the scene graph
+     * that is kept up to date incrementally. Pseudo-classes are matched against the current state of the nodes. All
+     * other queries are passed to a TestFX lookup, which searches all windows. In both cases, the nodes of a window are
+     * returned in the order of its scene graph.
      *
      * @param type  The type of the nodes to return.
      * @param query The query to match.
@@ -124,8 +1189,45 @@ public abstract class JavaFXTest extends ApplicationTest {
      * @param <T> The type of the nodes to return.
      * @see NodeQuery#lookup(String)
      */
+    @SuppressWarnings("unchecked")
     protected <T extends Node> Set<T> getNodesOfType(Class<T> type, String query) {
-        return lookup(query).queryAllAs(type);
+        return (Set<T>) queryAll(query);
+    }
+
+    /**
+     * Returns all nodes of the given type in all showing windows, in the order of the scene graph of each window.
+     *
+     * @param type The type of the nodes to return.
+     * @return A set of all nodes that are instances of the given type.
+     * @param <T> The type of the nodes to return.
+     */
+    protected <T extends Node> Set<T> getNodesOfType(Class<T> type) {
+        return SceneGraphIndex.inLookupOrder(sceneGraphIndex().lookup(type), robotContext().getWindowFinder()::listTargetWindows);
+    }
+
+    private Set<Node> queryAll(String query) {
+        NodeSelector selector = NodeSelector.compile(query);
+        if (selector != null) {
+            return selector.select(sceneGraphIndex(), robotContext().getWindowFinder()::listTargetWindows);
+        }
+        return lookup(query).queryAll();
+    }
+
+    private SceneGraphIndex sceneGraphIndex() {
+        SceneGraphIndex index = SceneGraphIndex.getInstance();
+        if (!index.isInstalled()) {
+            FxWatchdog watchdog = fxWatchdog;
+            waitForFx(WaitForAsyncUtils.asyncFx(() -> {
+                // Indexing a large scene graph is no stall of the application
+                if (watchdog == null) {
+                    index.install();
+                }
+                else {
+                    watchdog.runSuspended(index::install);
+                }
+            }));
+        }
+        return index;
     }
 
     /**
@@ -0,0 +1,37 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Fails tests if objects of previous tests of the same class are leaked.
+ * <p>
+ * With this annotation, Eos tracks the application instance, the scene of the primary stage and all other stages
+ * created by each test. Objects of a test can only be collected after the test instance was discarded and the next
+ * application replaced the scene of the primary stage. Therefore, the objects are checked before the following test
+ * runs, which costs a garbage collection, and that test fails if more than the given number of objects of the class
+ * are still reachable. The failure names the leaked objects and a path from a static field or showing window that
+ * keeps them reachable. The objects of the last test of the class, and of other classes, are only logged.
+ * <p>
+ * Without this annotation, leaks are not tracked unless the system property <code>eos.trackLeaks</code> is set to
+ * <code>true</code>, in which case they are only logged.
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface LeakBudget {
+
+    /**
+     * Returns the number of leaked objects that are tolerated before a test fails.
+     *
+     * @return The number of tolerated leaked objects.
+     */
+    int value() default 0;
+}
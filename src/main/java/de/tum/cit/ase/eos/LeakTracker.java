@@ -0,0 +1,181 @@
+package de.tum.cit.ase.eos;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javafx.application.Application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testfx.framework.junit5.ApplicationAdapter;
+import org.testfx.util.WaitForAsyncUtils;
+
+import com.sun.javafx.application.ParametersImpl;
+
+/**
+ * Tracks objects created by tests with weak references and reports the ones that are still reachable after the test.
+ * <p>
+ * Only the tracked objects are checked, so the check is cheap unless an object leaks. Objects that are still reachable
+ * are checked again after a garbage collection. For each leaked object, the reference graph is then searched
+ * breadth-first for the shortest path from a showing window, the animation timer or a static field. Leaked objects
+ * are reported only once, together with the test class that tracked them.
+ *
+ * @see LeakBudget
+ */
+final class LeakTracker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeakTracker.class);
+
+    private static final LeakTracker INSTANCE = new LeakTracker();
+
+    /**
+     * The number of garbage collections before a still reachable object is considered leaked.
+     */
+    private static final int GC_ROUNDS = 2;
+
+    /**
+     * The maximum time to wait for the search of the retaining paths, which runs on the JavaFX Application Thread.
+     */
+    private static final long SEARCH_TIMEOUT_MILLIS = 5000;
+
+    // Guarded by this
+    private final List<TrackedObject> trackedObjects = new ArrayList<>();
+
+    // Only accessed on the JavaFX Application Thread
+    private Map<Application, Application.Parameters> applicationParameters;
+
+    private boolean applicationParametersResolved;
+
+    private LeakTracker() {
+    }
+
+    /**
+     * Returns the tracker shared by all tests.
+     *
+     * @return The tracker.
+     */
+    static LeakTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts tracking the given object.
+     *
+     * @param object    The object that should become unreachable after the test, e.g. the application instance.
+     * @param testClass The test class that created the object.
+     * @param test      The name of the test that created the object.
+     */
+    synchronized void track(Object object, Class<?> testClass, String test) {
+        trackedObjects.add(new TrackedObject(object, describe(object), testClass, test));
+    }
+
+    /**
+     * Checks whether the tracked objects were collected. Must not be called on the JavaFX Application Thread.
+     *
+     * @return A description of each leaked object with a retaining path, if one was found, by the test class that
+     *         tracked the object. Empty if all tracked objects were collected.
+     */
+    Map<Class<?>, List<String>> findLeaks() {
+        for (int round = 0; round < GC_ROUNDS && removeCollected(); round++) {
+            System.gc();
+        }
+        List<TrackedObject> leaked;
+        synchronized (this) {
+            if (!removeCollected()) {
+                return Map.of();
+            }
+            leaked = new ArrayList<>(trackedObjects);
+            trackedObjects.clear();
+        }
+        return describeLeaks(leaked);
+    }
+
+    /**
+     * Removes the parameters TestFX registered for the application adapters of finished tests. The toolkit keeps them
+     * in a static map that is never cleared, so each adapter would keep its test instance, and with it the
+     * application, reachable for the rest of the run. Must be called on the JavaFX Application Thread.
+     */
+    @SuppressWarnings("unchecked")
+    void releaseApplicationParameters() {
+        if (!applicationParametersResolved) {
+            applicationParametersResolved = true;
+            try {
+                Field params = ParametersImpl.class.getDeclaredField("params");
+                params.setAccessible(true);
+                applicationParameters = (Map<Application, Application.Parameters>) params.get(null);
+            }
+            catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.warn("The application parameters of this JavaFX version cannot be released, every test instance stays reachable", e);
+            }
+        }
+        if (applicationParameters != null) {
+            applicationParameters.keySet().removeIf(ApplicationAdapter.class::isInstance);
+        }
+    }
+
+    /**
+     * Removes all collected objects.
+     *
+     * @return <code>true</code> if some objects are still reachable.
+     */
+    private synchronized boolean removeCollected() {
+        trackedObjects.removeIf(trackedObject -> trackedObject.refersTo(null));
+        return !trackedObjects.isEmpty();
+    }
+
+    private static Map<Class<?>, List<String>> describeLeaks(List<TrackedObject> leaked) {
+        Map<Object, TrackedObject> targets = new IdentityHashMap<>();
+        for (TrackedObject trackedObject : leaked) {
+            Object object = trackedObject.get();
+            if (object != null) {
+                targets.put(object, trackedObject);
+            }
+        }
+        Map<Object, String> paths;
+        try {
+            paths = WaitForAsyncUtils.waitFor(SEARCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, WaitForAsyncUtils.asyncFx(() -> new RetainingPathSearch(targets.keySet()).run()));
+        }
+        catch (TimeoutException e) {
+            LOG.warn("The retaining paths of the leaked objects were not found within {} ms", SEARCH_TIMEOUT_MILLIS);
+            paths = Map.of();
+        }
+
+        Map<Class<?>, List<String>> leaks = new LinkedHashMap<>();
+        for (Map.Entry<Object, TrackedObject> target : targets.entrySet()) {
+            TrackedObject trackedObject = target.getValue();
+            String path = paths.get(target.getKey());
+            leaks.computeIfAbsent(trackedObject.testClass, testClass -> new ArrayList<>())
+                    .add(trackedObject.description + " of " + trackedObject.test + " is still reachable" + (path == null ? "" : " from " + path));
+        }
+        return leaks;
+    }
+
+    static String describe(Object object) {
+        return object.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(object));
+    }
+
+    /**
+     * A weakly referenced object with the test that created it.
+     */
+    private static final class TrackedObject extends WeakReference<Object> {
+
+        private final String description;
+
+        private final Class<?> testClass;
+
+        private final String test;
+
+        private TrackedObject(Object object, String description, Class<?> testClass, String test) {
+            super(object);
+            this.description = description;
+            this.testClass = testClass;
+            this.test = test;
+        }
+    }
+}
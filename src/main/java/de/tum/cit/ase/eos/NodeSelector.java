@@ -0,0 +1,197 @@
+package de.tum.cit.ase.eos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javafx.css.PseudoClass;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.stage.Window;
+
+/**
+ * A CSS selector compiled into predicates on nodes.
+ * <p>
+ * Selectors consist of compound selectors separated by descendant (whitespace) or child (<code>&gt;</code>)
+ * combinators. A compound selector is an optional type selector (<code>Button</code> or <code>*</code>) followed by
+ * any number of style class (<code>.button</code>), id (<code>#submit</code>) and pseudo-class
+ * (<code>:focused</code>) selectors. Like a TestFX lookup, only queries starting with a style class or id are treated
+ * as selectors. Unlike a TestFX lookup, pseudo-classes are matched against the current state of the nodes instead of
+ * being ignored.
+ * <p>
+ * Each query is parsed only once and cached. The candidates for the last compound selector are taken from the
+ * {@link SceneGraphIndex} by id or style class, and only they are matched against the whole selector. The matches are
+ * returned in the order of a TestFX lookup.
+ */
+final class NodeSelector {
+
+    private static final Pattern COMBINATOR = Pattern.compile("\\s*>\\s*|\\s+");
+
+    private static final Pattern COMPOUND = Pattern.compile("([a-zA-Z_][-_a-zA-Z0-9]*|\\*)?((?:[.#:][-_a-zA-Z0-9]+)*)");
+
+    private static final Pattern PART = Pattern.compile("[.#:][-_a-zA-Z0-9]+");
+
+    /**
+     * The maximum number of cached queries, e.g. if tests build queries from loop variables.
+     */
+    private static final int MAX_CACHED_QUERIES = 1024;
+
+    private static final NodeSelector UNSUPPORTED = new NodeSelector(List.of(), new boolean[0], null, null);
+
+    private static final Map<String, NodeSelector> CACHE = new ConcurrentHashMap<>();
+
+    private final List<Predicate<Node>> compounds;
+
+    /**
+     * Whether the compound selector at an index is combined with the next one by a child combinator.
+     */
+    private final boolean[] childCombinators;
+
+    private final String lastId;
+
+    private final String lastStyleClass;
+
+    private NodeSelector(List<Predicate<Node>> compounds, boolean[] childCombinators, String lastId, String lastStyleClass) {
+        this.compounds = compounds;
+        this.childCombinators = childCombinators;
+        this.lastId = lastId;
+        this.lastStyleClass = lastStyleClass;
+    }
+
+    /**
+     * Returns the compiled selector of the given query.
+     *
+     * @param query The query as passed to a TestFX lookup.
+     * @return The selector or <code>null</code> if the query is not a selector or uses unsupported syntax, e.g. an
+     *         attribute selector. Such queries have to be answered by TestFX.
+     */
+    static NodeSelector compile(String query) {
+        NodeSelector selector = CACHE.get(query);
+        if (selector == null) {
+            if (CACHE.size() >= MAX_CACHED_QUERIES) {
+                CACHE.clear();
+            }
+            selector = Objects.requireNonNullElse(parse(query), UNSUPPORTED);
+            CACHE.put(query, selector);
+        }
+        return selector == UNSUPPORTED ? null : selector;
+    }
+
+    private static NodeSelector parse(String query) {
+        String selector = query.strip();
+        if (!selector.startsWith(".") && !selector.startsWith("#")) {
+            return null;
+        }
+
+        List<Predicate<Node>> compounds = new ArrayList<>();
+        List<Boolean> childCombinators = new ArrayList<>();
+        Matcher combinator = COMBINATOR.matcher(selector);
+        int start = 0;
+        String lastId = null;
+        String lastStyleClass = null;
+        while (true) {
+            boolean found = combinator.find();
+            String compound = selector.substring(start, found ? combinator.start() : selector.length());
+            Matcher parts = COMPOUND.matcher(compound);
+            if (compound.isEmpty() || !parts.matches()) {
+                return null;
+            }
+
+            Predicate<Node> predicate = node -> true;
+            String type = parts.group(1);
+            if (type != null && !"*".equals(type)) {
+                predicate = predicate.and(node -> type.equals(node.getTypeSelector()));
+            }
+            lastId = null;
+            lastStyleClass = null;
+            Matcher part = PART.matcher(parts.group(2));
+            while (part.find()) {
+                String name = part.group().substring(1);
+                switch (part.group().charAt(0)) {
+                    case '.':
+                        predicate = predicate.and(node -> node.getStyleClass().contains(name));
+                        lastStyleClass = name;
+                        break;
+                    case '#':
+                        predicate = predicate.and(node -> name.equals(node.getId()));
+                        lastId = name;
+                        break;
+                    default:
+                        PseudoClass pseudoClass = PseudoClass.getPseudoClass(name);
+                        predicate = predicate.and(node -> node.getPseudoClassStates().contains(pseudoClass));
+                }
+            }
+            compounds.add(predicate);
+
+            if (!found) {
+                break;
+            }
+            childCombinators.add(combinator.group().contains(">"));
+            start = combinator.end();
+        }
+
+        boolean[] childCombinatorArray = new boolean[childCombinators.size()];
+        for (int i = 0; i < childCombinatorArray.length; i++) {
+            childCombinatorArray[i] = childCombinators.get(i);
+        }
+        return new NodeSelector(List.copyOf(compounds), childCombinatorArray, lastId, lastStyleClass);
+    }
+
+    /**
+     * Returns all nodes of the showing windows matching this selector, in the order a TestFX lookup would return them.
+     *
+     * @param index   The installed scene graph index.
+     * @param windows The windows in the order of the TestFX window finder.
+     * @return The matching nodes.
+     * @see SceneGraphIndex#inLookupOrder(Collection, Supplier)
+     */
+    Set<Node> select(SceneGraphIndex index, Supplier<List<Window>> windows) {
+        Collection<? extends Node> candidates;
+        if (lastId != null) {
+            candidates = index.withId(lastId);
+        }
+        else if (lastStyleClass != null) {
+            candidates = index.withStyleClass(lastStyleClass);
+        }
+        else {
+            candidates = index.lookup(Node.class);
+        }
+        List<Node> nodes = new ArrayList<>();
+        for (Node node : candidates) {
+            if (matches(node, compounds.size() - 1)) {
+                nodes.add(node);
+            }
+        }
+        return SceneGraphIndex.inLookupOrder(nodes, windows);
+    }
+
+    /**
+     * Returns whether the given node matches the compound selector at the given index, with all preceding compound
+     * selectors matching its ancestors. Descendant combinators backtrack like in CSS.
+     */
+    private boolean matches(Node node, int compound) {
+        if (!compounds.get(compound).test(node)) {
+            return false;
+        }
+        if (compound == 0) {
+            return true;
+        }
+        if (childCombinators[compound - 1]) {
+            Parent parent = node.getParent();
+            return parent != null && matches(parent, compound - 1);
+        }
+        for (Parent ancestor = node.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (matches(ancestor, compound - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+package de.tum.cit.ase.eos;
+
+import java.util.List;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Cell;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Labeled;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.control.Toggle;
+import javafx.scene.text.Text;
+
+/**
+ * The state of a watched node at the end of a pulse. Snapshots are immutable and may be read from any thread.
+ *
+ * @see JavaFXTest#watchNodes(Node...)
+ */
+public final class NodeSnapshot {
+
+    private final String text;
+
+    private final boolean visible;
+
+    private final boolean disabled;
+
+    private final Bounds boundsInScene;
+
+    private final List<String> styleClasses;
+
+    private final boolean selected;
+
+    NodeSnapshot(String text, boolean visible, boolean disabled, Bounds boundsInScene, List<String> styleClasses, boolean selected) {
+        this.text = text;
+        this.visible = visible;
+        this.disabled = disabled;
+        this.boundsInScene = boundsInScene;
+        this.styleClasses = styleClasses;
+        this.selected = selected;
+    }
+
+    /**
+     * Reads the current state of the given node. Must be called on the JavaFX Application Thread.
+     *
+     * @param node The node to read.
+     * @return The snapshot of the node.
+     */
+    static NodeSnapshot of(Node node) {
+        String text = null;
+        if (node instanceof Labeled) {
+            text = ((Labeled) node).getText();
+        }
+        else if (node instanceof TextInputControl) {
+            text = ((TextInputControl) node).getText();
+        }
+        else if (node instanceof Text) {
+            text = ((Text) node).getText();
+        }
+
+        boolean selected = false;
+        if (node instanceof Toggle) {
+            selected = ((Toggle) node).isSelected();
+        }
+        else if (node instanceof CheckBox) {
+            selected = ((CheckBox) node).isSelected();
+        }
+        else if (node instanceof Cell) {
+            selected = ((Cell<?>) node).isSelected();
+        }
+
+        return new NodeSnapshot(text, isShown(node), node.isDisabled(), node.localToScene(node.getBoundsInLocal()), List.copyOf(node.getStyleClass()), selected);
+    }
+
+    private static boolean isShown(Node node) {
+        if (node.getScene() == null || node.getScene().getWindow() == null || !node.getScene().getWindow().isShowing()) {
+            return false;
+        }
+        for (Node current = node; current != null; current = current.getParent()) {
+            if (!current.isVisible()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the text of a labeled control, a text input control or a text node.
+     *
+     * @return The text or <code>null</code> if the node has no text.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns whether the node is visible, i.e. it and all its ancestors are visible and it is part of a showing
+     * window.
+     *
+     * @return <code>true</code> if the node is visible.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Returns whether the node is disabled, either itself or by one of its ancestors.
+     *
+     * @return <code>true</code> if the node is disabled.
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    /**
+     * Returns the bounds of the node in the coordinates of its scene.
+     *
+     * @return The bounds in the scene.
+     */
+    public Bounds getBoundsInScene() {
+        return boundsInScene;
+    }
+
+    /**
+     * Returns the style classes of the node.
+     *
+     * @return An unmodifiable list of the style classes.
+     */
+    public List<String> getStyleClasses() {
+        return styleClasses;
+    }
+
+    /**
+     * Returns whether the node is selected. Only toggles such as toggle and radio buttons, check boxes and cells can be
+     * selected.
+     *
+     * @return <code>true</code> if the node is selected.
+     */
+    public boolean isSelected() {
+        return selected;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NodeSnapshot[text=%s, visible=%s, disabled=%s, boundsInScene=%s, styleClasses=%s, selected=%s]", text, visible, disabled, boundsInScene, styleClasses,
+                selected);
+    }
+}
@@ -0,0 +1,145 @@
+package de.tum.cit.ase.eos;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.stage.Window;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javafx.scene.SceneHelper;
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.TKScene;
+import com.sun.javafx.tk.Toolkit;
+
+/**
+ * Suppresses the painting of all scenes.
+ * <p>
+ * Each pulse first runs the scene pulses (CSS, layout and synchronization of the render tree), which mark the changed
+ * scenes as dirty in the paint collector of the toolkit, and then renders all dirty scenes. A pulse listener running
+ * between both steps discards the dirty scenes, so nothing is rendered. The render tree keeps track of its dirty
+ * regions, and a repaint of the entire scenes is requested before painting is allowed for a single pulse.
+ *
+ * @see SkipRendering
+ */
+final class PaintSuppression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PaintSuppression.class);
+
+    private final Object paintCollector;
+
+    private final List<?> dirtyScenes;
+
+    private final Method setDirty;
+
+    private final TKPulseListener pulseListener = this::pulse;
+
+    // Only accessed on the JavaFX Application Thread
+    private CompletableFuture<Void> paintRequest;
+
+    private PaintSuppression(Object paintCollector, List<?> dirtyScenes, Method setDirty) {
+        this.paintCollector = paintCollector;
+        this.dirtyScenes = dirtyScenes;
+        this.setDirty = setDirty;
+    }
+
+    /**
+     * Stops painting scenes until {@link #uninstall()} is called. Must be called on the JavaFX Application Thread.
+     *
+     * @return The installed suppression or <code>null</code> if the paint collector of this JavaFX version cannot be
+     *         accessed. In that case, scenes are painted as usual.
+     */
+    static PaintSuppression install() {
+        try {
+            Class<?> collectorClass = Class.forName("com.sun.javafx.tk.quantum.PaintCollector");
+            Method getInstance = collectorClass.getDeclaredMethod("getInstance");
+            Field dirtyScenes = collectorClass.getDeclaredField("dirtyScenes");
+            Method setDirty = collectorClass.getDeclaredMethod("setDirty", boolean.class);
+            getInstance.setAccessible(true);
+            dirtyScenes.setAccessible(true);
+            setDirty.setAccessible(true);
+            Object paintCollector = getInstance.invoke(null);
+            PaintSuppression suppression = new PaintSuppression(paintCollector, (List<?>) dirtyScenes.get(paintCollector), setDirty);
+            Toolkit.getToolkit().addPostSceneTkPulseListener(suppression.pulseListener);
+            return suppression;
+        }
+        catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOG.warn("Skipping the rendering is not supported by this JavaFX version, scenes are painted as usual", e);
+            return null;
+        }
+    }
+
+    /**
+     * Paints all showing windows once, e.g. before a screenshot is taken. May be called from any thread.
+     *
+     * @return A future that completes when the painting is complete.
+     */
+    CompletableFuture<Void> paintNow() {
+        CompletableFuture<Void> painted = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            paintRequest = painted;
+            repaintShowingWindows();
+            Toolkit.getToolkit().requestNextPulse();
+        });
+        return painted;
+    }
+
+    /**
+     * Paints scenes as usual again and repaints all showing windows. Must be called on the JavaFX Application Thread.
+     */
+    void uninstall() {
+        Toolkit.getToolkit().removePostSceneTkPulseListener(pulseListener);
+        if (paintRequest != null) {
+            paintRequest.cancel(false);
+            paintRequest = null;
+        }
+        repaintShowingWindows();
+    }
+
+    private void pulse() {
+        if (paintRequest != null) {
+            CompletableFuture<Void> painted = paintRequest;
+            paintRequest = null;
+            // The rendering is started after the pulse listeners
+            Platform.runLater(() -> {
+                for (Window window : Window.getWindows()) {
+                    TKScene peer = peerOf(window);
+                    if (peer != null) {
+                        peer.waitForRenderingToComplete();
+                        break;
+                    }
+                }
+                painted.complete(null);
+            });
+            return;
+        }
+        if (dirtyScenes.isEmpty()) {
+            return;
+        }
+        try {
+            dirtyScenes.clear();
+            setDirty.invoke(paintCollector, false);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not skip the rendering", e);
+        }
+    }
+
+    private static void repaintShowingWindows() {
+        for (Window window : Window.getWindows()) {
+            TKScene peer = peerOf(window);
+            if (peer != null) {
+                peer.entireSceneNeedsRepaint();
+            }
+        }
+    }
+
+    private static TKScene peerOf(Window window) {
+        Scene scene = window.getScene();
+        return window.isShowing() && scene != null ? SceneHelper.getPeer(scene) : null;
+    }
+}
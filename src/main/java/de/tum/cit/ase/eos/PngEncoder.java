@@ -0,0 +1,128 @@
+package de.tum.cit.ase.eos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal PNG encoder for non-premultiplied ARGB pixels.
+ * <p>
+ * The pixels are written as 8-bit RGBA without filtering. All buffers are reused between images, so an encoder
+ * instance must only be used by one thread at a time.
+ */
+final class PngEncoder implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int BIT_DEPTH = 8;
+
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private static final int FILTER_NONE = 0;
+
+    private static final int MAX_CHUNK_LENGTH = 1 << 16;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] header = new byte[13];
+
+    private final byte[] chunk = new byte[MAX_CHUNK_LENGTH];
+
+    private final byte[] intBytes = new byte[4];
+
+    private int chunkLength;
+
+    private byte[] row = new byte[0];
+
+    /**
+     * Encodes the given pixels as PNG and writes them to the given stream.
+     *
+     * @param argb   The pixels in non-premultiplied ARGB format, row by row without padding.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param out    The stream to write the PNG to. It is not closed.
+     * @throws IOException If writing to the stream fails.
+     */
+    void encode(int[] argb, int width, int height, OutputStream out) throws IOException {
+        out.write(SIGNATURE);
+
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = BIT_DEPTH;
+        header[9] = COLOR_TYPE_RGBA;
+        writeChunk(out, IHDR, header, header.length);
+
+        int rowLength = 1 + width * 4;
+        if (row.length < rowLength) {
+            row = new byte[rowLength];
+        }
+        deflater.reset();
+        chunkLength = 0;
+        for (int y = 0; y < height; y++) {
+            row[0] = FILTER_NONE;
+            for (int x = 0, offset = y * width, i = 1; x < width; x++, i += 4) {
+                int pixel = argb[offset + x];
+                row[i] = (byte) (pixel >> 16);
+                row[i + 1] = (byte) (pixel >> 8);
+                row[i + 2] = (byte) pixel;
+                row[i + 3] = (byte) (pixel >>> 24);
+            }
+            deflater.setInput(row, 0, rowLength);
+            while (!deflater.needsInput()) {
+                deflate(out);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate(out);
+        }
+        if (chunkLength > 0) {
+            writeChunk(out, IDAT, chunk, chunkLength);
+        }
+
+        writeChunk(out, IEND, chunk, 0);
+    }
+
+    private void deflate(OutputStream out) throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, MAX_CHUNK_LENGTH - chunkLength);
+        if (chunkLength == MAX_CHUNK_LENGTH) {
+            writeChunk(out, IDAT, chunk, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    private void writeChunk(OutputStream out, byte[] type, byte[] data, int length) throws IOException {
+        putInt(intBytes, 0, length);
+        out.write(intBytes);
+        out.write(type);
+        out.write(data, 0, length);
+
+        crc.reset();
+        crc.update(type);
+        crc.update(data, 0, length);
+        putInt(intBytes, 0, (int) crc.getValue());
+        out.write(intBytes);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+}
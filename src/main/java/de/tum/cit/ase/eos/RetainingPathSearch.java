@@ -0,0 +1,211 @@
+package de.tum.cit.ase.eos;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import javafx.stage.Window;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javafx.tk.Toolkit;
+
+/**
+ * A breadth-first search of the reference graph for the shortest paths to the given objects. The search starts at the
+ * showing windows and the animation timer, and the static fields of each class are added as roots when its first
+ * instance is found. Weak and soft references are not followed because they do not prevent a collection. Must be run
+ * on the JavaFX Application Thread, which it blocks for at most half a second.
+ *
+ * @see LeakTracker
+ */
+final class RetainingPathSearch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetainingPathSearch.class);
+
+    /**
+     * The maximum number of objects visited.
+     */
+    private static final int MAX_VISITED_OBJECTS = 500_000;
+
+    /**
+     * The maximum time of the search.
+     */
+    private static final long MAX_SEARCH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final Set<String> OPAQUE_PACKAGES = Set.of("java.lang", "java.lang.ref", "java.lang.reflect", "java.lang.invoke", "java.security");
+
+    private final Set<Object> targets;
+
+    private final Map<Object, String> paths = new IdentityHashMap<>();
+
+    private final Map<Object, Object> parents = new IdentityHashMap<>();
+
+    private final Map<Object, String> edges = new IdentityHashMap<>();
+
+    private final Queue<Object> queue = new ArrayDeque<>();
+
+    private final Set<Class<?>> visitedStatics = new HashSet<>();
+
+    private final Map<Class<?>, List<Field>> instanceFields = new HashMap<>();
+
+    /**
+     * Creates a search for the given objects.
+     *
+     * @param targets An identity-based set of the objects to search for.
+     */
+    RetainingPathSearch(Set<Object> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * Searches the paths to the targets.
+     *
+     * @return The path to each reachable target, e.g. <code>Window.getWindows()[0].scene.value</code>. Targets without a
+     *         path are missing.
+     */
+    Map<Object, String> run() {
+        List<Window> windows = new ArrayList<>(Window.getWindows());
+        for (int i = 0; i < windows.size(); i++) {
+            visit(windows.get(i), null, "Window.getWindows()[" + i + "]");
+        }
+        visit(Toolkit.getToolkit().getPrimaryTimer(), null, "the animation timer");
+        for (Object target : targets) {
+            visitStatics(target.getClass());
+        }
+        long deadline = System.nanoTime() + MAX_SEARCH_NANOS;
+        boolean timedOut = false;
+        while (!queue.isEmpty() && parents.size() < MAX_VISITED_OBJECTS && paths.size() < targets.size() && !timedOut) {
+            Object object = queue.poll();
+            visitStatics(object.getClass());
+            visitReferences(object);
+            timedOut = System.nanoTime() - deadline > 0;
+        }
+        if (parents.size() >= MAX_VISITED_OBJECTS || timedOut) {
+            LOG.debug("Stopped searching for retaining paths after {} objects", parents.size());
+        }
+        return paths;
+    }
+
+    private void visitReferences(Object object) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            if (!type.getComponentType().isPrimitive()) {
+                for (int i = 0, length = Array.getLength(object); i < length; i++) {
+                    visit(Array.get(object, i), object, "[" + i + "]");
+                }
+            }
+        }
+        else if (object instanceof Collection && isOpaque(type.getPackageName())) {
+            int i = 0;
+            for (Object element : ((Collection<?>) object).toArray()) {
+                visit(element, object, "[" + i++ + "]");
+            }
+        }
+        else if (object instanceof Map && isOpaque(type.getPackageName())) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                if (!(object instanceof WeakHashMap)) {
+                    visit(entry.getKey(), object, ".keySet()");
+                }
+                visit(entry.getValue(), object, ".get(" + (entry.getKey() == null ? "null" : LeakTracker.describe(entry.getKey())) + ")");
+            }
+        }
+        else if (!OPAQUE_PACKAGES.contains(type.getPackageName())) {
+            for (Field field : instanceFields(type)) {
+                try {
+                    visit(field.get(object), object, "." + field.getName());
+                }
+                catch (IllegalAccessException e) {
+                    // Not readable, just like the inaccessible fields that are skipped
+                }
+            }
+        }
+    }
+
+    /**
+     * Static fields are roots, so a class is visited the first time one of its instances is found.
+     */
+    private void visitStatics(Class<?> type) {
+        for (Class<?> current = type; current != null && !isOpaque(current.getPackageName()); current = current.getSuperclass()) {
+            if (!visitedStatics.add(current)) {
+                return;
+            }
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive() && trySetAccessible(field)) {
+                    try {
+                        visit(field.get(null), null, current.getSimpleName() + "." + field.getName());
+                    }
+                    catch (IllegalAccessException e) {
+                        // Not readable
+                    }
+                }
+            }
+        }
+    }
+
+    private void visit(Object object, Object parent, String edge) {
+        if (object == null || object instanceof Class || object instanceof Reference || object instanceof String || parents.containsKey(object)) {
+            return;
+        }
+        parents.put(object, parent);
+        edges.put(object, edge);
+        if (targets.contains(object)) {
+            paths.put(object, path(object));
+        }
+        queue.add(object);
+    }
+
+    private String path(Object object) {
+        List<String> path = new ArrayList<>();
+        for (Object current = object; current != null; current = parents.get(current)) {
+            path.add(edges.get(current));
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            builder.append(path.get(i));
+        }
+        return builder.toString();
+    }
+
+    private List<Field> instanceFields(Class<?> type) {
+        return instanceFields.computeIfAbsent(type, key -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = key; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive() && trySetAccessible(field)) {
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static boolean trySetAccessible(Field field) {
+        try {
+            return field.trySetAccessible();
+        }
+        catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Classes of the JDK are not opened for reflection, so only their collections are followed through their API.
+     */
+    private static boolean isOpaque(String packageName) {
+        return packageName.startsWith("java.") || packageName.startsWith("javax.") || packageName.startsWith("jdk.") || packageName.startsWith("sun.");
+    }
+}
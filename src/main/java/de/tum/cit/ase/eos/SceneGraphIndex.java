@@ -0,0 +1,353 @@
+package de.tum.cit.ase.eos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Window;
+
+/**
+ * Index of the nodes of all showing windows by style class, id and type.
+ * <p>
+ * The index is built once and then kept up to date by listeners on the window list, the scenes and roots of the
+ * windows, the child lists of all parents and the style classes and ids of all nodes. All updates happen on the JavaFX
+ * Application Thread, while queries may be run from any thread.
+ * <p>
+ * Selectors are answered by a {@link NodeSelector}, which takes its candidates from the index. The index itself is
+ * unordered, so the results are sorted into the order of a TestFX lookup afterwards, see
+ * {@link #inLookupOrder(Collection, Supplier)}. Change listeners are notified after every change of the indexed scene
+ * graph, e.g. to wait for a node to appear.
+ */
+final class SceneGraphIndex {
+
+    private static final SceneGraphIndex INSTANCE = new SceneGraphIndex();
+
+    private final Map<String, Set<Node>> nodesByStyleClass = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Node>> nodesById = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Set<Node>> nodesByType = new ConcurrentHashMap<>();
+
+    // Only accessed on the JavaFX Application Thread
+    private final Map<Node, IndexedNode> indexedNodes = new HashMap<>();
+
+    private final Map<Window, ChangeListener<Scene>> sceneListeners = new HashMap<>();
+
+    private final Map<Scene, ChangeListener<Parent>> rootListeners = new HashMap<>();
+
+    private final List<Runnable> changeListeners = new ArrayList<>();
+
+    private volatile boolean installed;
+
+    private SceneGraphIndex() {
+    }
+
+    /**
+     * Returns the index shared by all tests.
+     *
+     * @return The scene graph index.
+     */
+    static SceneGraphIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns whether the index has been installed yet.
+     *
+     * @return <code>true</code> if {@link #install()} was called.
+     */
+    boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Indexes all showing windows and starts listening for changes. Must be called on the JavaFX Application Thread.
+     * Calling this method again has no effect.
+     */
+    void install() {
+        if (installed) {
+            return;
+        }
+        Window.getWindows().addListener((ListChangeListener<Window>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(this::unindexWindow);
+                change.getAddedSubList().forEach(this::indexWindow);
+            }
+            changed();
+        });
+        Window.getWindows().forEach(this::indexWindow);
+        installed = true;
+    }
+
+    /**
+     * Returns the nodes with the given style class.
+     *
+     * @param styleClass The style class without the leading dot.
+     * @return An unmodifiable view of the matching nodes in no particular order.
+     */
+    Set<Node> withStyleClass(String styleClass) {
+        return Collections.unmodifiableSet(nodesByStyleClass.getOrDefault(styleClass, Set.of()));
+    }
+
+    /**
+     * Returns the nodes with the given id.
+     *
+     * @param id The id without the leading hash.
+     * @return An unmodifiable view of the matching nodes in no particular order.
+     */
+    Set<Node> withId(String id) {
+        return Collections.unmodifiableSet(nodesById.getOrDefault(id, Set.of()));
+    }
+
+    /**
+     * Returns all nodes that are instances of the given type.
+     *
+     * @param type The type of the nodes.
+     * @return The matching nodes in no particular order.
+     * @param <T> The type of the nodes.
+     */
+    <T extends Node> Set<T> lookup(Class<T> type) {
+        Set<T> result = new HashSet<>();
+        nodesByType.forEach((nodeType, nodes) -> {
+            if (type.isAssignableFrom(nodeType)) {
+                nodes.forEach(node -> result.add(type.cast(node)));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the given nodes in the order a TestFX lookup finds them within a window: in the order of the scene graph,
+     * with every parent before its children and the children in the order of their parent. Nodes of different windows
+     * are sorted by the given order of the windows, which TestFX itself does not keep.
+     *
+     * @param nodes   The nodes to sort.
+     * @param windows The windows in the order of the TestFX window finder, e.g. the target window first. Only queried
+     *                if the nodes are shown in more than one window.
+     * @return The sorted nodes.
+     * @param <T> The type of the nodes.
+     */
+    static <T extends Node> Set<T> inLookupOrder(Collection<T> nodes, Supplier<List<Window>> windows) {
+        if (nodes.size() < 2) {
+            return new LinkedHashSet<>(nodes);
+        }
+        Map<T, int[]> positions = new HashMap<>();
+        Map<T, Window> nodeWindows = new HashMap<>();
+        for (T node : nodes) {
+            List<Integer> path = new ArrayList<>();
+            Node root = node;
+            for (Parent parent = node.getParent(); parent != null; parent = parent.getParent()) {
+                path.add(parent.getChildrenUnmodifiable().indexOf(root));
+                root = parent;
+            }
+            // The path is collected from the node up, the position starts at the root
+            int[] position = new int[path.size() + 1];
+            for (int i = 1; i < position.length; i++) {
+                position[i] = path.get(position.length - 1 - i);
+            }
+            positions.put(node, position);
+            nodeWindows.put(node, root.getScene() == null ? null : root.getScene().getWindow());
+        }
+        if (new HashSet<>(nodeWindows.values()).size() > 1) {
+            List<Window> windowOrder = windows.get();
+            nodeWindows.forEach((node, window) -> {
+                int windowIndex = windowOrder.indexOf(window);
+                positions.get(node)[0] = windowIndex < 0 ? Integer.MAX_VALUE : windowIndex;
+            });
+        }
+        List<T> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparing(positions::get, Arrays::compare));
+        return new LinkedHashSet<>(sorted);
+    }
+
+    /**
+     * Adds a listener that is run on the JavaFX Application Thread after every change of the indexed scene graph. Must
+     * be called on the JavaFX Application Thread.
+     *
+     * @param listener The listener to add.
+     */
+    void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addChangeListener(Runnable)}. Must be called on the JavaFX Application
+     * Thread.
+     *
+     * @param listener The listener to remove.
+     */
+    void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void changed() {
+        if (!changeListeners.isEmpty()) {
+            List.copyOf(changeListeners).forEach(Runnable::run);
+        }
+    }
+
+    private void indexWindow(Window window) {
+        ChangeListener<Scene> sceneListener = (observable, oldScene, newScene) -> {
+            if (oldScene != null) {
+                unindexScene(oldScene);
+            }
+            if (newScene != null) {
+                indexScene(newScene);
+            }
+            changed();
+        };
+        sceneListeners.put(window, sceneListener);
+        window.sceneProperty().addListener(sceneListener);
+        if (window.getScene() != null) {
+            indexScene(window.getScene());
+        }
+    }
+
+    private void unindexWindow(Window window) {
+        ChangeListener<Scene> sceneListener = sceneListeners.remove(window);
+        if (sceneListener != null) {
+            window.sceneProperty().removeListener(sceneListener);
+        }
+        if (window.getScene() != null) {
+            unindexScene(window.getScene());
+        }
+    }
+
+    private void indexScene(Scene scene) {
+        ChangeListener<Parent> rootListener = (observable, oldRoot, newRoot) -> {
+            if (oldRoot != null) {
+                unindex(oldRoot);
+            }
+            if (newRoot != null) {
+                index(newRoot);
+            }
+            changed();
+        };
+        rootListeners.put(scene, rootListener);
+        scene.rootProperty().addListener(rootListener);
+        if (scene.getRoot() != null) {
+            index(scene.getRoot());
+        }
+    }
+
+    private void unindexScene(Scene scene) {
+        ChangeListener<Parent> rootListener = rootListeners.remove(scene);
+        if (rootListener != null) {
+            scene.rootProperty().removeListener(rootListener);
+        }
+        if (scene.getRoot() != null) {
+            unindex(scene.getRoot());
+        }
+    }
+
+    private void index(Node node) {
+        if (indexedNodes.containsKey(node)) {
+            return;
+        }
+        IndexedNode indexedNode = new IndexedNode();
+        indexedNodes.put(node, indexedNode);
+
+        indexedNode.styleClasses = List.copyOf(node.getStyleClass());
+        indexedNode.styleClasses.forEach(styleClass -> add(nodesByStyleClass, styleClass, node));
+        indexedNode.styleClassListener = change -> {
+            indexedNode.styleClasses.forEach(styleClass -> remove(nodesByStyleClass, styleClass, node));
+            indexedNode.styleClasses = List.copyOf(node.getStyleClass());
+            indexedNode.styleClasses.forEach(styleClass -> add(nodesByStyleClass, styleClass, node));
+            changed();
+        };
+        node.getStyleClass().addListener(indexedNode.styleClassListener);
+
+        if (node.getId() != null) {
+            add(nodesById, node.getId(), node);
+        }
+        indexedNode.idListener = (observable, oldId, newId) -> {
+            if (oldId != null) {
+                remove(nodesById, oldId, node);
+            }
+            if (newId != null) {
+                add(nodesById, newId, node);
+            }
+            changed();
+        };
+        node.idProperty().addListener(indexedNode.idListener);
+
+        add(nodesByType, node.getClass(), node);
+
+        if (node instanceof Parent) {
+            Parent parent = (Parent) node;
+            indexedNode.childrenListener = change -> {
+                while (change.next()) {
+                    for (Node child : change.getRemoved()) {
+                        // A child moved to another indexed parent must stay in the index
+                        if (child.getParent() == null || !indexedNodes.containsKey(child.getParent())) {
+                            unindex(child);
+                        }
+                    }
+                    change.getAddedSubList().forEach(this::index);
+                }
+                changed();
+            };
+            parent.getChildrenUnmodifiable().addListener(indexedNode.childrenListener);
+            parent.getChildrenUnmodifiable().forEach(this::index);
+        }
+    }
+
+    private void unindex(Node node) {
+        IndexedNode indexedNode = indexedNodes.remove(node);
+        if (indexedNode == null) {
+            return;
+        }
+        node.getStyleClass().removeListener(indexedNode.styleClassListener);
+        indexedNode.styleClasses.forEach(styleClass -> remove(nodesByStyleClass, styleClass, node));
+        node.idProperty().removeListener(indexedNode.idListener);
+        if (node.getId() != null) {
+            remove(nodesById, node.getId(), node);
+        }
+        remove(nodesByType, node.getClass(), node);
+
+        if (node instanceof Parent) {
+            Parent parent = (Parent) node;
+            parent.getChildrenUnmodifiable().removeListener(indexedNode.childrenListener);
+            parent.getChildrenUnmodifiable().forEach(this::unindex);
+        }
+    }
+
+    private static <K> void add(Map<K, Set<Node>> index, K key, Node node) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(node);
+    }
+
+    private static <K> void remove(Map<K, Set<Node>> index, K key, Node node) {
+        Set<Node> nodes = index.get(key);
+        if (nodes != null) {
+            nodes.remove(node);
+        }
+    }
+
+    /**
+     * The listeners registered on an indexed node and the keys it is currently indexed with.
+     */
+    private static final class IndexedNode {
+
+        private List<String> styleClasses;
+
+        private ListChangeListener<String> styleClassListener;
+
+        private ChangeListener<String> idListener;
+
+        private ListChangeListener<Node> childrenListener;
+    }
+}
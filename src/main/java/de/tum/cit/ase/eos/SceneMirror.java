@@ -0,0 +1,90 @@
+package de.tum.cit.ase.eos;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javafx.scene.Node;
+
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.Toolkit;
+
+/**
+ * A read-only mirror of the state of watched nodes that the test thread can read without switching to the JavaFX
+ * Application Thread.
+ * <p>
+ * The snapshots of all watched nodes are taken at the end of every pulse, after CSS and layout were applied, and
+ * published together with a single volatile write. Readers therefore always see the state of all watched nodes after
+ * the same pulse. Waiting for the idle state makes sure that the pulse following an interaction was mirrored.
+ *
+ * @see NodeSnapshot
+ */
+final class SceneMirror {
+
+    private static final SceneMirror INSTANCE = new SceneMirror();
+
+    // Only accessed on the JavaFX Application Thread
+    private final Set<Node> watchedNodes = new LinkedHashSet<>();
+
+    private final TKPulseListener pulseListener = this::refresh;
+
+    private volatile Map<Node, NodeSnapshot> snapshots = Map.of();
+
+    private SceneMirror() {
+    }
+
+    /**
+     * Returns the mirror shared by all tests.
+     *
+     * @return The scene mirror.
+     */
+    static SceneMirror getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts mirroring the given nodes and publishes their current state right away. Must be called on the JavaFX
+     * Application Thread.
+     *
+     * @param nodes The nodes to watch.
+     */
+    void watch(Collection<? extends Node> nodes) {
+        if (watchedNodes.isEmpty()) {
+            Toolkit.getToolkit().addPostSceneTkPulseListener(pulseListener);
+        }
+        watchedNodes.addAll(nodes);
+        refresh();
+    }
+
+    /**
+     * Stops mirroring all nodes. Must be called on the JavaFX Application Thread.
+     */
+    void clear() {
+        if (watchedNodes.isEmpty()) {
+            return;
+        }
+        Toolkit.getToolkit().removePostSceneTkPulseListener(pulseListener);
+        watchedNodes.clear();
+        snapshots = Map.of();
+    }
+
+    /**
+     * Returns the snapshots of all watched nodes, all taken at the end of the same pulse. May be called from any
+     * thread.
+     *
+     * @return An unmodifiable map from the watched nodes to their snapshots, in the order they were watched.
+     */
+    Map<Node, NodeSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    private void refresh() {
+        Map<Node, NodeSnapshot> refreshed = new LinkedHashMap<>();
+        for (Node node : watchedNodes) {
+            refreshed.put(node, NodeSnapshot.of(node));
+        }
+        snapshots = Collections.unmodifiableMap(refreshed);
+    }
+}
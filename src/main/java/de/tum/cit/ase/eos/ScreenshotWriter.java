@@ -0,0 +1,193 @@
+package de.tum.cit.ase.eos;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes screenshots to PNG files on a background thread.
+ * <p>
+ * The pixels of a screenshot are read once into a pooled <code>int[]</code> buffer on the calling thread. Encoding and
+ * writing happen on a single daemon thread. The queue of pending screenshots is bounded, so callers block if
+ * screenshots are taken faster than they can be written.
+ */
+final class ScreenshotWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScreenshotWriter.class);
+
+    /**
+     * The name of the writer thread, which has to be excluded from the thread group check of Ares.
+     */
+    static final String THREAD_NAME = "eos-screenshot-writer";
+
+    private static final int QUEUE_CAPACITY = 8;
+
+    private static ScreenshotWriter instance;
+
+    private final BlockingQueue<Screenshot> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final BlockingQueue<int[]> buffers = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 1);
+
+    private final PngEncoder encoder = new PngEncoder();
+
+    private final Thread thread;
+
+    private int pending;
+
+    private ScreenshotWriter() {
+        thread = new Thread(this::run, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the writer, starting it if necessary.
+     *
+     * @return The screenshot writer.
+     */
+    static synchronized ScreenshotWriter getInstance() {
+        if (instance == null) {
+            instance = new ScreenshotWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * Writes all pending screenshots and stops the writer thread, if it was started.
+     */
+    static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Copies the pixels of the given image and queues them to be written to the given file.
+     *
+     * @param file  The PNG file to write.
+     * @param image The image to write. It must not change while this method runs.
+     * @throws InterruptedException If interrupted while waiting for space in the queue.
+     */
+    void submit(File file, Image image) throws InterruptedException {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = buffers.poll();
+        if (pixels == null || pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        submit(file, pixels, width, height);
+    }
+
+    /**
+     * Queues the given pixels to be written to the given file. The writer takes ownership of the array.
+     *
+     * @param file   The PNG file to write.
+     * @param pixels The non-premultiplied ARGB pixels of the image, row by row.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @throws InterruptedException If interrupted while waiting for space in the queue.
+     */
+    void submit(File file, int[] pixels, int width, int height) throws InterruptedException {
+        synchronized (this) {
+            pending++;
+        }
+        try {
+            queue.put(new Screenshot(file, pixels, width, height));
+        }
+        catch (InterruptedException e) {
+            // The screenshot was not queued, so flush must not wait for it
+            written();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until all queued screenshots are written.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    synchronized void flush() throws InterruptedException {
+        while (pending > 0) {
+            wait();
+        }
+    }
+
+    private void close() {
+        try {
+            flush();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted while writing the remaining screenshots", e);
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Screenshot screenshot = queue.take();
+                try {
+                    write(screenshot);
+                }
+                finally {
+                    buffers.offer(screenshot.pixels);
+                    written();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // The writer was closed
+        }
+        finally {
+            encoder.close();
+        }
+    }
+
+    private synchronized void written() {
+        pending--;
+        notifyAll();
+    }
+
+    private void write(Screenshot screenshot) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(screenshot.file))) {
+            encoder.encode(screenshot.pixels, screenshot.width, screenshot.height, out);
+        }
+        catch (IOException | RuntimeException e) {
+            // E.g. a SecurityException if the directory is not whitelisted; the following screenshots are still written
+            LOG.error("Failed to save screenshot {}", screenshot.file, e);
+        }
+    }
+
+    /**
+     * A screenshot waiting to be written.
+     */
+    private static final class Screenshot {
+
+        private final File file;
+
+        private final int[] pixels;
+
+        private final int width;
+
+        private final int height;
+
+        private Screenshot(File file, int[] pixels, int width, int height) {
+            this.file = file;
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
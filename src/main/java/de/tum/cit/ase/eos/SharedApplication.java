@@ -0,0 +1,27 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Starts the application under test only once per test class instead of once per test method.
+ * <p>
+ * The first test of the class creates the application and calls its <code>start</code> method. All following tests
+ * of the class reuse the same application instance and scene, which is shown on the primary stage again before each
+ * test. Use {@link JavaFXTest#resetSharedApplication()} to restore the state of the application between tests.
+ * <p>
+ * This is intended for test classes with many tests that mostly inspect the GUI. Only the scene of the primary stage
+ * is shown again, other windows opened by the application stay hidden after the test that opened them.
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface SharedApplication {
+}
@@ -0,0 +1,57 @@
+package de.tum.cit.ase.eos;
+
+import javafx.scene.Scene;
+
+/**
+ * The application instance and scene shared by the tests of a class annotated with {@link SharedApplication},
+ * together with the time spent starting and reusing them.
+ */
+final class SharedApplicationState {
+
+    private final Object application;
+
+    private final Scene scene;
+
+    private final long startupNanos;
+
+    private long reuseCount;
+
+    private long reuseNanos;
+
+    SharedApplicationState(Object application, Scene scene, long startupNanos) {
+        this.application = application;
+        this.scene = scene;
+        this.startupNanos = startupNanos;
+    }
+
+    Object getApplication() {
+        return application;
+    }
+
+    Scene getScene() {
+        return scene;
+    }
+
+    long getStartupNanos() {
+        return startupNanos;
+    }
+
+    long getReuseCount() {
+        return reuseCount;
+    }
+
+    /**
+     * Returns the startup time saved by reusing the application, assuming every start would have taken as long as the
+     * first one.
+     *
+     * @return The saved time in nanoseconds.
+     */
+    long getSavedNanos() {
+        return reuseCount * startupNanos - reuseNanos;
+    }
+
+    void recordReuse(long nanos) {
+        reuseCount++;
+        reuseNanos += nanos;
+    }
+}
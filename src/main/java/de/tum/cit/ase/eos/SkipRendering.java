@@ -0,0 +1,27 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Skips painting the scenes of the application under test.
+ * <p>
+ * While a test of an annotated class runs, pulses still apply CSS, lay out the scene graph and synchronize it with the
+ * render tree, and events are handled as usual, but the scenes are no longer rasterized. This saves most of the CPU
+ * time of the software pipeline for tests that only check the state of nodes. Screenshots taken with
+ * {@link JavaFXTest#captureAndSaveScreenshot(String)} or compared with
+ * {@link JavaFXTest#assertScreenshotMatches(String)} paint all windows once right before the capture, so they look
+ * the same as without this annotation.
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface SkipRendering {
+}
@@ -42,11 +42,32 @@ import de.tum.in.test.api.jupiter.Public;
 // Allow all threads and trust all threads
 @TrustedThreads(value = TrustedThreads.TrustScope.ALL_THREADS)
 @AllowThreads
-@DisableThreadGroupCheckFor({ "testfx-async-pool-thread-", "JavaFX-Launcher", "QuantumRenderer-0", "Monocle Timer", "JavaFX Application Thread", "InvokeLaterDispatcher" })
+@DisableThreadGroupCheckFor({ "testfx-async-pool-thread-", "JavaFX-Launcher", "QuantumRenderer-0", "Monocle Timer", "JavaFX Application Thread", "InvokeLaterDispatcher",
+        "eos-screenshot-writer", "eos-fx-watchdog" })
 
 // Whitelisted test classes
 @WhitelistClass(JavaFXTest.class)
 @WhitelistClass(HelperClass.class)
+@WhitelistClass(DirectInteraction.class)
+@WhitelistClass(SharedApplicationState.class)
+@WhitelistClass(VirtualFxClock.class)
+@WhitelistClass(SceneGraphIndex.class)
+@WhitelistClass(ScreenshotWriter.class)
+@WhitelistClass(PngEncoder.class)
+@WhitelistClass(ImageComparison.class)
+@WhitelistClass(FramebufferCapture.class)
+@WhitelistClass(FxIdle.class)
+@WhitelistClass(FxIdleStatistics.class)
+@WhitelistClass(PaintSuppression.class)
+@WhitelistClass(LeakTracker.class)
+@WhitelistClass(RetainingPathSearch.class)
+@WhitelistClass(NodeSelector.class)
+@WhitelistClass(ApplicationHandles.class)
+@WhitelistClass(SceneMirror.class)
+@WhitelistClass(NodeSnapshot.class)
+@WhitelistClass(FxExceptionCapture.class)
+@WhitelistClass(FxWatchdog.class)
+@WhitelistClass(DialogResponder.class)
 
 // General test annotations
 @StrictTimeout(10)
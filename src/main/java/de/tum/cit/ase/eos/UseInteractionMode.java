@@ -0,0 +1,28 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the {@link InteractionMode} used by the <code>clickOn</code>, <code>write</code>, <code>eraseText</code>,
+ * <code>type</code> and <code>push</code> methods of a {@link JavaFXTest}.
+ * <p>
+ * Without this annotation, tests use {@link InteractionMode#ROBOT}.
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface UseInteractionMode {
+
+    /**
+     * The interaction mode to use.
+     */
+    InteractionMode value();
+}
@@ -0,0 +1,108 @@
+package de.tum.cit.ase.eos;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.javafx.tk.Toolkit;
+import com.sun.scenario.animation.AbstractPrimaryTimer;
+
+/**
+ * Virtual clock replacing the real time of the JavaFX animation timer.
+ * <p>
+ * The primary timer of the toolkit is paused, so the regular pulses no longer drive animations. The clock then
+ * reports its virtual time as the time the timer was paused at and runs the animation pulses for that time on request.
+ * Scene pulses (CSS, layout and rendering) are not affected. All methods must be called on the JavaFX Application
+ * Thread.
+ *
+ * @see VirtualFxTime
+ */
+final class VirtualFxClock {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualFxClock.class);
+
+    /**
+     * The length of a pulse at the default frame rate of 60 frames per second.
+     */
+    static final long PULSE_NANOS = 1_000_000_000L / 60;
+
+    private final AbstractPrimaryTimer timer;
+
+    private final Field startPauseTime;
+
+    private final Method timePulseImpl;
+
+    private long nanos;
+
+    private VirtualFxClock(AbstractPrimaryTimer timer, Field startPauseTime, Method timePulseImpl) {
+        this.timer = timer;
+        this.startPauseTime = startPauseTime;
+        this.timePulseImpl = timePulseImpl;
+        this.nanos = timer.nanos();
+    }
+
+    /**
+     * Pauses the animation timer of the toolkit and installs a virtual clock starting at the current time.
+     *
+     * @return The installed clock or <code>null</code> if the animation timer of this JavaFX version cannot be
+     *         controlled. In that case, the timer keeps running in real time.
+     */
+    static VirtualFxClock install() {
+        try {
+            AbstractPrimaryTimer timer = Toolkit.getToolkit().getPrimaryTimer();
+            Field startPauseTime = AbstractPrimaryTimer.class.getDeclaredField("startPauseTime");
+            Method timePulseImpl = AbstractPrimaryTimer.class.getDeclaredMethod("timePulseImpl", long.class);
+            startPauseTime.setAccessible(true);
+            timePulseImpl.setAccessible(true);
+            timer.pause();
+            return new VirtualFxClock(timer, startPauseTime, timePulseImpl);
+        }
+        catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOG.warn("Virtual FX time is not supported by this JavaFX version, animations run in real time", e);
+            return null;
+        }
+    }
+
+    /**
+     * Advances the virtual time and runs one animation pulse and one scene pulse per frame of the elapsed time.
+     * Exceptions thrown by animations are reported to the uncaught exception handler like for regular pulses.
+     *
+     * @param duration   The time to advance in nanoseconds.
+     * @param afterPulse Run after every frame, e.g. to report progress to the {@link FxWatchdog}.
+     */
+    void advance(long duration, Runnable afterPulse) {
+        long target = nanos + duration;
+        while (nanos < target) {
+            nanos = Math.min(nanos + PULSE_NANOS, target);
+            try {
+                startPauseTime.setLong(timer, nanos);
+                timePulseImpl.invoke(timer, nanos);
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException("Could not advance the virtual FX time", e);
+            }
+            catch (InvocationTargetException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e.getCause());
+            }
+            Toolkit.getToolkit().firePulse();
+            afterPulse.run();
+        }
+    }
+
+    /**
+     * Resumes the animation timer in real time, continuing from the current virtual time.
+     */
+    void uninstall() {
+        try {
+            startPauseTime.setLong(timer, nanos);
+        }
+        catch (IllegalAccessException e) {
+            LOG.warn("Could not transfer the virtual FX time to the animation timer", e);
+        }
+        timer.resume();
+    }
+}
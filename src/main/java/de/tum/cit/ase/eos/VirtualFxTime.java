@@ -0,0 +1,26 @@
+package de.tum.cit.ase.eos;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the animations of the application under test on a virtual clock.
+ * <p>
+ * While a test of an annotated class runs, the JavaFX animation timer is paused. Animations such as
+ * <code>Timeline</code>, <code>Transition</code>, <code>PauseTransition</code> and <code>AnimationTimer</code> only
+ * make progress when the test calls {@link JavaFXTest#advanceFxTime(javafx.util.Duration)}, which runs all pulses of
+ * the given time span as fast as possible. This makes tests of animated applications both faster and independent of
+ * the load of the machine.
+ */
+@Inherited
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE, ANNOTATION_TYPE })
+public @interface VirtualFxTime {
+}
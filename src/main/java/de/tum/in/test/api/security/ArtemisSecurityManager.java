@@ -15,6 +15,7 @@ import java.security.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.*;
 import java.util.regex.Pattern;
 import java.util.stream.*;
@@ -59,6 +60,36 @@ public final class ArtemisSecurityManager extends SecurityManager {
     private static final Set<String> THREAD_NAME_BLACKLIST = Set.of(COMMON_POOL_THREAD_NAME, "Finalizer", //$NON-NLS-1$
             "InnocuousThread", "Common-Cleaner"); //$NON-NLS-1$ //$NON-NLS-2$
 
+    /**
+     * The permission names that are checked regardless of the permission class.
+     * A map instead of lists, so that the most frequent, unlisted names are
+     * dismissed with a single lookup.
+     */
+    private static final Map<String, PermissionNameRule> PERMISSION_NAME_RULES = Map.of( //
+            "getClassLoader", PermissionNameRule.WHITELISTED, //$NON-NLS-1$
+            "accessSystemModules", PermissionNameRule.WHITELISTED, //$NON-NLS-1$
+            "manageProcess", PermissionNameRule.BLACKLISTED, //$NON-NLS-1$
+            "shutdownHooks", PermissionNameRule.BLACKLISTED, //$NON-NLS-1$
+            "createSecurityManager", PermissionNameRule.BLACKLISTED, //$NON-NLS-1$
+            "setIO", PermissionNameRule.SET_IO, //$NON-NLS-1$
+            "setSecurityManager", PermissionNameRule.SET_SECURITY_MANAGER, //$NON-NLS-1$
+            "accessDeclaredMembers", PermissionNameRule.ACCESS_DECLARED_MEMBERS); //$NON-NLS-1$
+
+    /**
+     * The rule of each permission class, resolved with <code>instanceof</code>
+     * semantics once per class instead of once per check.
+     */
+    private static final ClassValue<PermissionTypeRule> PERMISSION_TYPE_RULES = new ClassValue<>() {
+        @Override
+        protected PermissionTypeRule computeValue(Class<?> type) {
+            for (PermissionTypeRule rule : PermissionTypeRule.values()) {
+                if (rule.appliesTo(type))
+                    return rule;
+            }
+            return PermissionTypeRule.OTHER;
+        }
+    };
+
     private static final MessageDigest SHA256;
     static {
         try {
@@ -97,10 +128,18 @@ public final class ArtemisSecurityManager extends SecurityManager {
 
     private final ThreadLocal<AtomicInteger> recursionBreak = ThreadLocal.withInitial(AtomicInteger::new);
 
-    private final StackWalker stackWalker = StackWalker.getInstance();
+    private final StackWalker stackWalker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
 
     private AresSecurityConfiguration configuration;
 
+    private volatile StackFrameClassifier stackFrameClassifier = StackFrameClassifier.of(null, null);
+
+    private volatile PathAccessCache pathAccessCache;
+
+    private final LongAdder classContextChecks = new LongAdder();
+
+    private final LongAdder stackWalks = new LongAdder();
+
     private String accessToken;
 
     private Set<Thread> whitelistedThreads = new HashSet<>();
@@ -338,9 +377,6 @@ public final class ArtemisSecurityManager extends SecurityManager {
 
     @Override
     public void checkPermission(Permission perm) {
-        var permName = perm.getName();
-        var permActions = perm.getActions();
-        var permString = String.valueOf(perm);
         try {
             if (enterPublicInterface())
                 return;
@@ -348,39 +384,29 @@ public final class ArtemisSecurityManager extends SecurityManager {
             // for threads: modifyThread
             // for preferences: preferences
             // for redefinition of IO: setIO
-            var whitelist = List.of("getClassLoader", "accessSystemModules"); //$NON-NLS-1$ //$NON-NLS-2$
-            if (whitelist.contains(permName))
+            var permName = perm.getName();
+            var nameRule = permName == null ? null : PERMISSION_NAME_RULES.get(permName);
+            if (nameRule == PermissionNameRule.WHITELISTED)
                 return;
-            var blacklist = List.of("manageProcess", "shutdownHooks", "createSecurityManager"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-            if (blacklist.contains(permName))
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_blacklist") + permString); //$NON-NLS-1$
-            if ("setIO".equals(permName) && !isWorkerThreadAndInactive()) //$NON-NLS-1$
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_blacklist") + permString); //$NON-NLS-1$
+            if (nameRule == PermissionNameRule.BLACKLISTED)
+                checkForNonWhitelistedStackFrames(() -> localized("security.error_blacklist") + perm); //$NON-NLS-1$
+            if (nameRule == PermissionNameRule.SET_IO && !isWorkerThreadAndInactive())
+                checkForNonWhitelistedStackFrames(() -> localized("security.error_blacklist") + perm); //$NON-NLS-1$
             // this could be removed / reduced, if the specified part is needed (does not
             // work for gradle)
-            if ("setSecurityManager".equals(permName) && !isPartlyDisabled) //$NON-NLS-1$
+            if (nameRule == PermissionNameRule.SET_SECURITY_MANAGER && !isPartlyDisabled)
                 throw new SecurityException(localized("security.error_security_manager")); //$NON-NLS-1$
-            if (perm instanceof SerializablePermission)
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_modify_serialization") + permString); //$NON-NLS-1$
-            if (perm instanceof AWTPermission)
-                throw new SecurityException(localized("security.error_awt") + permString); //$NON-NLS-1$
-            if (perm instanceof ManagementPermission)
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_management") + permString); //$NON-NLS-1$
-            if ((configuration == null || configuration.allowLocalPortsAbove().isEmpty()) && (perm instanceof NetPermission || perm instanceof SocketPermission))
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_networking") + permString); //$NON-NLS-1$
-            if (perm instanceof SecurityPermission) {
-                if (permName.startsWith("getPolicy") || permName.startsWith("getProperty")) //$NON-NLS-1$ //$NON-NLS-2$
-                    return;
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_modify_security") + permString); //$NON-NLS-1$
-            }
-            if (perm instanceof SSLPermission)
-                throw new SecurityException(localized("security.error_modify_ssl") + permString); //$NON-NLS-1$
-            if (perm instanceof AuthPermission)
-                throw new SecurityException(localized("security.error_modify_auth") + permString); //$NON-NLS-1$
-            if (perm instanceof FilePermission)
-                checkPathAccess(permName, PathActionLevel.getLevelOf(permActions));
-            if (perm instanceof ReflectPermission || "accessDeclaredMembers".equals(permName)) //$NON-NLS-1$
-                checkForNonWhitelistedStackFrames(() -> localized("security.error_modify_security") + permString); //$NON-NLS-1$
+            var typeRule = PERMISSION_TYPE_RULES.get(perm.getClass());
+            if (typeRule == PermissionTypeRule.SECURITY && (permName.startsWith("getPolicy") || permName.startsWith("getProperty"))) //$NON-NLS-1$ //$NON-NLS-2$
+                return;
+            if (typeRule.denied)
+                throw new SecurityException(localized(typeRule.messageKey) + perm);
+            if (typeRule.messageKey != null && (typeRule != PermissionTypeRule.NETWORKING || configuration == null || configuration.allowLocalPortsAbove().isEmpty()))
+                checkForNonWhitelistedStackFrames(() -> localized(typeRule.messageKey) + perm);
+            if (typeRule == PermissionTypeRule.FILE)
+                checkPathAccess(permName, PathActionLevel.getLevelOf(perm.getActions()));
+            if (typeRule == PermissionTypeRule.REFLECTION || nameRule == PermissionNameRule.ACCESS_DECLARED_MEMBERS)
+                checkForNonWhitelistedStackFrames(() -> localized("security.error_modify_security") + perm); //$NON-NLS-1$
         }
         finally {
             exitPublicInterface();
@@ -391,23 +417,14 @@ public final class ArtemisSecurityManager extends SecurityManager {
         var whitelisted = false;
         var blacklisted = false;
         try {
-            if ("<<ALL FILES>>".equals(path)) { //$NON-NLS-1$
-                blacklisted = true;
-            }
-            else {
-                String commonPath = getFilePermissionsCommonPath(path);
-                if (commonPath == null) {
-                    var absolutePath = Path.of(path).toAbsolutePath();
-                    blacklisted = isPathBlacklisted(absolutePath, pathActionLevel);
-                    whitelisted = isPathWhitelisted(absolutePath, pathActionLevel);
-                }
-                else {
-                    var absolutePath = Path.of(commonPath).toAbsolutePath();
-                    blacklisted = !configuration.blacklistedPaths().isEmpty();
-                    whitelisted = !blacklisted
-                            && configuration.whitelistedPaths().orElse(Set.of()).stream().anyMatch(pm -> pm.matchesRecursivelyWithLevel(absolutePath, pathActionLevel));
-                }
+            var cache = pathAccessCache;
+            var decision = cache.get(path, pathActionLevel);
+            if (decision == null) {
+                decision = matchPathRules(cache, path, pathActionLevel);
+                cache.put(path, pathActionLevel, decision);
             }
+            blacklisted = decision.isBlacklisted();
+            whitelisted = decision.isWhitelisted();
             if (!blacklisted && whitelisted)
                 return;
         }
@@ -442,6 +459,21 @@ public final class ArtemisSecurityManager extends SecurityManager {
         }
     }
 
+    private PathAccessCache.Decision matchPathRules(PathAccessCache rules, String path, PathActionLevel pathActionLevel) {
+        if ("<<ALL FILES>>".equals(path)) //$NON-NLS-1$
+            return PathAccessCache.Decision.BLACKLISTED;
+        String commonPath = getFilePermissionsCommonPath(path);
+        if (commonPath == null) {
+            var absolutePath = Path.of(path).toAbsolutePath();
+            return PathAccessCache.Decision.of(rules.isBlacklisted(absolutePath, pathActionLevel), rules.isWhitelisted(absolutePath, pathActionLevel));
+        }
+        var absolutePath = Path.of(commonPath).toAbsolutePath();
+        var blacklisted = !configuration.blacklistedPaths().isEmpty();
+        var whitelisted = !blacklisted
+                && configuration.whitelistedPaths().orElse(Set.of()).stream().anyMatch(pm -> pm.matchesRecursivelyWithLevel(absolutePath, pathActionLevel));
+        return PathAccessCache.Decision.of(blacklisted, whitelisted);
+    }
+
     private static String getFilePermissionsCommonPath(String path) {
         if (RECURSIVE_FILE_PERMISSION.matcher(path).find())
             return path.substring(0, path.length() - 2);
@@ -450,18 +482,6 @@ public final class ArtemisSecurityManager extends SecurityManager {
         return null;
     }
 
-    private boolean isPathWhitelisted(Path pa, PathActionLevel pathActionLevel) {
-        var pathWhitelist = configuration.whitelistedPaths();
-        if (pathWhitelist.isEmpty())
-            return pa.startsWith(configuration.executionPath());
-        return pathWhitelist.get().stream().anyMatch(pm -> pm.matchesWithLevel(pa, pathActionLevel));
-    }
-
-    private boolean isPathBlacklisted(Path pa, PathActionLevel pathActionLevel) {
-        var pathBlacklist = configuration.blacklistedPaths();
-        return pathBlacklist.stream().anyMatch(pm -> pm.matchesWithLevel(pa, pathActionLevel));
-    }
-
     @Override
     public void checkPackageAccess(String pkg) {
         try {
@@ -518,12 +538,55 @@ public final class ArtemisSecurityManager extends SecurityManager {
     }
 
     private List<StackFrame> getNonWhitelistedStackFrames() {
+        if (isStackWhitelistedByClasses(false))
+            return List.of();
         // one for AccessController itself and one for the caller
-        DelayedFilter<StackFrame> delayedIsNotPrivileged = new DelayedFilter<>(2, this::isNotPrivileged, true);
-        return getNonWhitelistedStackFrames(delayedIsNotPrivileged);
+        DelayedFilter<StackFrame> delayedIsNotPrivileged = new DelayedFilter<>(2, ArtemisSecurityManager::isNotPrivileged, true);
+        return walkNonWhitelistedStackFrames(delayedIsNotPrivileged);
     }
 
     private List<StackFrame> getNonWhitelistedStackFrames(Predicate<StackFrame> takeFromTopWhileFilter) {
+        if (takeFromTopWhileFilter == IGNORE_ACCESS_PRIVILEGED && isStackWhitelistedByClasses(true))
+            return List.of();
+        return walkNonWhitelistedStackFrames(takeFromTopWhileFilter);
+    }
+
+    /**
+     * Checks the classes on the stack instead of walking it, which is several
+     * times faster for deep stacks and answers the check with the cached decisions
+     * of the {@link StackFrameClassifier}. Only the frames of classes that are
+     * decided per method are walked, which are usually close to the top. The
+     * classes cover at least the frames the full walk would take, so only a
+     * positive result is final. Otherwise, the full walk finds the non-whitelisted
+     * frames.
+     */
+    private boolean isStackWhitelistedByClasses(boolean ignoreAccessPrivileged) {
+        if (!isCurrentThreadWhitelisted())
+            return false;
+        var classes = getClassContext();
+        var end = classes.length;
+        if (!ignoreAccessPrivileged) {
+            var privileged = 0;
+            while (privileged < classes.length && classes[privileged] != AccessController.class)
+                privileged++;
+            // the class context also contains hidden frames, so take all frames of
+            // AccessController and one for the caller
+            while (privileged < classes.length && classes[privileged] == AccessController.class)
+                privileged++;
+            end = Math.min(privileged + 1, classes.length);
+        }
+        var classifier = stackFrameClassifier;
+        var decidedPerMethod = classifier.countDecidedPerMethod(classes, end);
+        if (decidedPerMethod < 0)
+            return false;
+        if (decidedPerMethod > 0 && stackWalker.walk(sfs -> sfs.filter(classifier::isDecidedPerMethod).limit(decidedPerMethod).anyMatch(classifier::isStackFrameNotWhitelisted)))
+            return false;
+        classContextChecks.increment();
+        return true;
+    }
+
+    private List<StackFrame> walkNonWhitelistedStackFrames(Predicate<StackFrame> takeFromTopWhileFilter) {
+        stackWalks.increment();
         List<StackFrame> result;
         if (isCurrentThreadWhitelisted()) {
             result = stackWalker.walk(sfs -> sfs.takeWhile(takeFromTopWhileFilter).filter(this::isStackFrameNotWhitelisted).collect(Collectors.toList()));
@@ -534,23 +597,16 @@ public final class ArtemisSecurityManager extends SecurityManager {
         return result;
     }
 
-    private boolean isNotPrivileged(StackFrame stackFrame) {
-        return !AccessController.class.getName().equals(stackFrame.getClassName());
-    }
-
-    private boolean isCallNotWhitelisted(String className, String methodName) {
-        String call = className + "." + methodName; //$NON-NLS-1$
-        return SecurityConstants.STACK_BLACKLIST.stream().anyMatch(call::startsWith)
-                || (SecurityConstants.STACK_WHITELIST.stream().noneMatch(call::startsWith) && (configuration == null
-                        || (!configuration.whitelistedClassNames().contains(className) && configuration.trustedPackages().stream().noneMatch(pm -> pm.matches(className)))));
+    private static boolean isNotPrivileged(StackFrame stackFrame) {
+        return stackFrame.getDeclaringClass() != AccessController.class;
     }
 
     private boolean isStackFrameNotWhitelisted(StackFrame sf) {
-        return isCallNotWhitelisted(sf.getClassName(), sf.getMethodName());
+        return stackFrameClassifier.isStackFrameNotWhitelisted(sf);
     }
 
     private boolean isStackFrameNotWhitelisted(StackTraceElement ste) {
-        return isCallNotWhitelisted(ste.getClassName(), ste.getMethodName());
+        return stackFrameClassifier.isCallNotWhitelisted(ste.getClassName(), ste.getMethodName());
     }
 
     public static Optional<StackTraceElement> firstNonWhitelisted(StackTraceElement... elements) {
@@ -813,7 +869,7 @@ public final class ArtemisSecurityManager extends SecurityManager {
             LOG.info("Request install with {}", configuration.shortDesc()); //$NON-NLS-1$
         String token = INSTANCE.generateAccessToken();
         INSTANCE.blockThreadCreation = false;
-        INSTANCE.configuration = Objects.requireNonNull(configuration);
+        INSTANCE.setConfiguration(Objects.requireNonNull(configuration));
         INSTANCE.removeDeadThreads();
         if (!isInstalled())
             System.setSecurityManager(INSTANCE);
@@ -843,6 +899,8 @@ public final class ArtemisSecurityManager extends SecurityManager {
             INSTANCE.blockThreadCreation = false;
             INSTANCE.lastUninstallFailed = false;
             INSTANCE.isActive = false;
+            LOG.debug("Stack checks so far: {} answered by the classes on the stack, {} stack walks", INSTANCE.classContextChecks, INSTANCE.stackWalks); //$NON-NLS-1$
+            LOG.debug("Path access cache: {}", INSTANCE.pathAccessCache); //$NON-NLS-1$
         }
         catch (Throwable t) { // NOSONAR
             INSTANCE.lastUninstallFailed = true;
@@ -858,7 +916,13 @@ public final class ArtemisSecurityManager extends SecurityManager {
 
     public static synchronized void configure(String accessToken, AresSecurityConfiguration configuration) {
         INSTANCE.checkAccess(accessToken);
-        INSTANCE.configuration = configuration;
+        INSTANCE.setConfiguration(configuration);
+    }
+
+    private void setConfiguration(AresSecurityConfiguration configuration) {
+        this.configuration = configuration;
+        stackFrameClassifier = StackFrameClassifier.of(configuration, stackFrameClassifier);
+        pathAccessCache = PathAccessCache.of(configuration, pathAccessCache);
     }
 
     public static synchronized void requestThreadWhitelisting(Thread t) {
@@ -873,4 +937,52 @@ public final class ArtemisSecurityManager extends SecurityManager {
     private static String hash(String s) {
         return Base64.getEncoder().encodeToString(SHA256.digest(s.getBytes(StandardCharsets.UTF_8)));
     }
+
+    /**
+     * How a permission is checked based on its name.
+     */
+    private enum PermissionNameRule {
+        WHITELISTED,
+        BLACKLISTED,
+        SET_IO,
+        SET_SECURITY_MANAGER,
+        ACCESS_DECLARED_MEMBERS
+    }
+
+    /**
+     * How a permission is checked based on its class. Permissions with a message
+     * key are denied right away or if non-whitelisted frames are on the stack.
+     */
+    private enum PermissionTypeRule {
+        SERIALIZATION("security.error_modify_serialization", false, SerializablePermission.class), //$NON-NLS-1$
+        AWT("security.error_awt", true, AWTPermission.class), //$NON-NLS-1$
+        MANAGEMENT("security.error_management", false, ManagementPermission.class), //$NON-NLS-1$
+        NETWORKING("security.error_networking", false, NetPermission.class, SocketPermission.class), //$NON-NLS-1$
+        SECURITY("security.error_modify_security", false, SecurityPermission.class), //$NON-NLS-1$
+        SSL("security.error_modify_ssl", true, SSLPermission.class), //$NON-NLS-1$
+        AUTH("security.error_modify_auth", true, AuthPermission.class), //$NON-NLS-1$
+        FILE(null, false, FilePermission.class),
+        REFLECTION(null, false, ReflectPermission.class),
+        OTHER(null, false);
+
+        private final String messageKey;
+
+        private final boolean denied;
+
+        private final Class<?>[] permissionClasses;
+
+        PermissionTypeRule(String messageKey, boolean denied, Class<?>... permissionClasses) {
+            this.messageKey = messageKey;
+            this.denied = denied;
+            this.permissionClasses = permissionClasses;
+        }
+
+        private boolean appliesTo(Class<?> type) {
+            for (Class<?> permissionClass : permissionClasses) {
+                if (permissionClass.isAssignableFrom(type))
+                    return true;
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package de.tum.in.test.api.security;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.tum.in.test.api.PathActionLevel;
+import de.tum.in.test.api.util.PathRule;
+
+/**
+ * Matches paths against the path rules of one configuration and caches whether
+ * a path is blacklisted and whitelisted for an action level.
+ * <p>
+ * The rules are compiled into a {@link PathRuleIndex} per rule type and action
+ * level. Class loading, resource and font lookups request the same paths over
+ * and over, so the decisions are cached as well. Only the result of the rules
+ * is cached; whether a path that is not allowed
+ * by the rules may still be accessed depends on the stack and is checked every
+ * time. The cache is cleared when it is full, as the paths of a test run rarely
+ * exceed it.
+ */
+final class PathAccessCache {
+
+    /**
+     * The maximum number of cached paths per action level.
+     */
+    private static final int MAX_CACHED_PATHS = 4096;
+
+    private final Optional<Set<PathRule>> whitelistedPaths;
+
+    private final Set<PathRule> blacklistedPaths;
+
+    private final Path executionPath;
+
+    private final Map<PathActionLevel, PathRuleIndex> whitelistIndex = new EnumMap<>(PathActionLevel.class);
+
+    private final Map<PathActionLevel, PathRuleIndex> blacklistIndex = new EnumMap<>(PathActionLevel.class);
+
+    private final Map<PathActionLevel, Map<String, Decision>> decisions = new EnumMap<>(PathActionLevel.class);
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private PathAccessCache(AresSecurityConfiguration configuration) {
+        this.whitelistedPaths = configuration.whitelistedPaths();
+        this.blacklistedPaths = configuration.blacklistedPaths();
+        this.executionPath = configuration.executionPath();
+        for (PathActionLevel level : PathActionLevel.values()) {
+            whitelistedPaths.ifPresent(rules -> whitelistIndex.put(level, PathRuleIndex.of(rules, level)));
+            blacklistIndex.put(level, PathRuleIndex.of(blacklistedPaths, level));
+            decisions.put(level, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Returns a cache for the given configuration, reusing the given cache and
+     * its decisions if the configuration has the same path rules.
+     *
+     * @param configuration the configuration, may be <code>null</code>
+     * @param previous      the cache of the previous configuration, may be
+     *                      <code>null</code>
+     * @return the cache for the configuration, or <code>null</code> if there is no
+     *         configuration
+     */
+    static PathAccessCache of(AresSecurityConfiguration configuration, PathAccessCache previous) {
+        if (configuration == null)
+            return null;
+        if (previous != null && previous.whitelistedPaths.equals(configuration.whitelistedPaths()) && previous.blacklistedPaths.equals(configuration.blacklistedPaths())
+                && previous.executionPath.equals(configuration.executionPath()))
+            return previous;
+        return new PathAccessCache(configuration);
+    }
+
+    /**
+     * Returns whether the path is whitelisted for the action level. Without a
+     * path whitelist, only paths in the execution path are whitelisted.
+     *
+     * @param path  the absolute path
+     * @param level the requested action level
+     * @return true if the path is whitelisted
+     */
+    boolean isWhitelisted(Path path, PathActionLevel level) {
+        if (whitelistedPaths.isEmpty())
+            return path.startsWith(executionPath);
+        return whitelistIndex.get(level).matches(path);
+    }
+
+    /**
+     * Returns whether the path is blacklisted for the action level.
+     *
+     * @param path  the absolute path
+     * @param level the requested action level
+     * @return true if the path is blacklisted
+     */
+    boolean isBlacklisted(Path path, PathActionLevel level) {
+        return blacklistIndex.get(level).matches(path);
+    }
+
+    Decision get(String path, PathActionLevel level) {
+        var decision = decisions.get(level).get(path);
+        if (decision == null)
+            misses.increment();
+        else
+            hits.increment();
+        return decision;
+    }
+
+    void put(String path, PathActionLevel level, Decision decision) {
+        var levelDecisions = decisions.get(level);
+        if (levelDecisions.size() >= MAX_CACHED_PATHS)
+            levelDecisions.clear();
+        levelDecisions.put(path, decision);
+    }
+
+    @Override
+    public String toString() {
+        var size = decisions.values().stream().mapToInt(Map::size).sum();
+        return String.format("%d hits, %d misses, %d paths cached", hits.sum(), misses.sum(), size); //$NON-NLS-1$
+    }
+
+    /**
+     * Whether a path is blacklisted and whitelisted by the path rules.
+     */
+    enum Decision {
+        NONE(false, false),
+        WHITELISTED(false, true),
+        BLACKLISTED(true, false),
+        BLACKLISTED_AND_WHITELISTED(true, true);
+
+        private final boolean blacklisted;
+
+        private final boolean whitelisted;
+
+        Decision(boolean blacklisted, boolean whitelisted) {
+            this.blacklisted = blacklisted;
+            this.whitelisted = whitelisted;
+        }
+
+        static Decision of(boolean blacklisted, boolean whitelisted) {
+            if (blacklisted)
+                return whitelisted ? BLACKLISTED_AND_WHITELISTED : BLACKLISTED;
+            return whitelisted ? WHITELISTED : NONE;
+        }
+
+        boolean isBlacklisted() {
+            return blacklisted;
+        }
+
+        boolean isWhitelisted() {
+            return whitelisted;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package de.tum.in.test.api.security;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+import java.util.stream.Collectors;
+
+import de.tum.in.test.api.*;
+import de.tum.in.test.api.util.PathRule;
+
+/**
+ * The path rules of one type that apply to one requested action level, compiled
+ * so that a path is matched against all of them at once.
+ * <p>
+ * {@link PathType#EXACT} rules are looked up in a hash set and
+ * {@link PathType#STARTS_WITH} rules in a trie of path names, which costs one
+ * traversal of the path. All {@link PathType#REGEX} and all
+ * {@link PathType#REGEX_ABSOLUTE} patterns are merged into a single pattern
+ * each, which is compiled by the default file system like the patterns of the
+ * single rules. Glob rules and patterns with back references cannot be merged
+ * and are matched one after another.
+ */
+final class PathRuleIndex {
+
+    private static final FileSystem DEFAULT_FS = FileSystems.getDefault();
+
+    private static final Path CURRENT_PATH = Path.of("").toAbsolutePath(); //$NON-NLS-1$
+
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[1-9]|k<)"); //$NON-NLS-1$
+
+    private final Set<Path> exactPaths = new HashSet<>();
+
+    /**
+     * The roots of the trie of {@link PathType#STARTS_WITH} rules, by the root
+     * component of the paths.
+     */
+    private final Map<Path, PathNode> prefixRoots = new HashMap<>();
+
+    private final PathMatcher relativeRegex;
+
+    private final PathMatcher absoluteRegex;
+
+    private final List<PathRule> remainingRules = new ArrayList<>();
+
+    private PathRuleIndex(Collection<PathRule> rules) {
+        List<String> relativePatterns = new ArrayList<>();
+        List<String> absolutePatterns = new ArrayList<>();
+        for (PathRule rule : rules) {
+            var pattern = rule.getPathPattern();
+            if (rule.getPathType() == PathType.EXACT)
+                exactPaths.add(Path.of(pattern).toAbsolutePath().normalize());
+            else if (rule.getPathType() == PathType.STARTS_WITH)
+                addPrefix(Path.of(pattern).toAbsolutePath().normalize());
+            else if (rule.getPathType() == PathType.REGEX && !BACK_REFERENCE.matcher(pattern).find())
+                relativePatterns.add(pattern);
+            else if (rule.getPathType() == PathType.REGEX_ABSOLUTE && !BACK_REFERENCE.matcher(pattern).find())
+                absolutePatterns.add(pattern);
+            else
+                remainingRules.add(rule);
+        }
+        relativeRegex = mergeRegex(relativePatterns, rules, PathType.REGEX);
+        absoluteRegex = mergeRegex(absolutePatterns, rules, PathType.REGEX_ABSOLUTE);
+    }
+
+    /**
+     * Compiles the given rules that apply to the requested action level.
+     *
+     * @param rules   the whitelisted or blacklisted path rules
+     * @param request the requested action level
+     * @return the index of the applying rules
+     */
+    static PathRuleIndex of(Collection<PathRule> rules, PathActionLevel request) {
+        return new PathRuleIndex(rules.stream().filter(rule -> rule.appliesToLevel(request)).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns whether any of the rules matches the given path, like
+     * {@link PathRule#matchesWithLevel(Path, PathActionLevel)} for the requested
+     * action level of this index.
+     *
+     * @param path the absolute path
+     * @return true if a rule matches the path
+     */
+    boolean matches(Path path) {
+        if (exactPaths.contains(path))
+            return true;
+        var normalized = path.normalize();
+        if (startsWithPrefix(normalized))
+            return true;
+        if (relativeRegex != null && relativeRegex.matches(relativize(normalized)))
+            return true;
+        if (absoluteRegex != null && absoluteRegex.matches(normalized))
+            return true;
+        for (PathRule rule : remainingRules) {
+            if (rule.getPathMatcher().matches(path))
+                return true;
+        }
+        return false;
+    }
+
+    private void addPrefix(Path prefix) {
+        var node = prefixRoots.computeIfAbsent(prefix.getRoot(), root -> new PathNode());
+        for (Path name : prefix)
+            node = node.children.computeIfAbsent(name, child -> new PathNode());
+        node.isPrefix = true;
+    }
+
+    private boolean startsWithPrefix(Path path) {
+        var node = prefixRoots.get(path.getRoot());
+        for (var i = 0; node != null; i++) {
+            if (node.isPrefix)
+                return true;
+            if (i == path.getNameCount())
+                return false;
+            node = node.children.get(path.getName(i));
+        }
+        return false;
+    }
+
+    /**
+     * Merges the patterns into one alternation. If the merged pattern cannot be
+     * compiled, the rules of the patterns are matched one after another instead.
+     */
+    private PathMatcher mergeRegex(List<String> patterns, Collection<PathRule> rules, PathType pathType) {
+        if (patterns.isEmpty())
+            return null;
+        var merged = patterns.stream().map(pattern -> "(?:" + pattern + ")").collect(Collectors.joining("|")); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            return DEFAULT_FS.getPathMatcher("regex:" + merged); //$NON-NLS-1$
+        }
+        catch (@SuppressWarnings("unused") PatternSyntaxException e) {
+            rules.stream().filter(rule -> rule.getPathType() == pathType && patterns.contains(rule.getPathPattern())).forEach(remainingRules::add);
+            return null;
+        }
+    }
+
+    /**
+     * Relativizes the normalized path like the matchers of {@link PathType#REGEX}
+     * rules.
+     */
+    private static Path relativize(Path normalized) {
+        var path = normalized.toAbsolutePath();
+        if (!Objects.equals(path.getRoot(), CURRENT_PATH.getRoot()))
+            return path;
+        return CURRENT_PATH.relativize(path).normalize();
+    }
+
+    private static final class PathNode {
+
+        private final Map<Path, PathNode> children = new HashMap<>();
+
+        private boolean isPrefix;
+    }
+}
@@ -0,0 +1,112 @@
+package de.tum.in.test.api.security;
+
+import java.lang.StackWalker.StackFrame;
+import java.util.*;
+
+import de.tum.in.test.api.util.PackageRule;
+
+/**
+ * Decides whether calls on the stack are whitelisted for the whitelisted class
+ * names and trusted packages of one configuration.
+ * <p>
+ * The decision only depends on the class of a call, unless a prefix of the
+ * {@link SecurityConstants#STACK_BLACKLIST} or
+ * {@link SecurityConstants#STACK_WHITELIST} reaches into the method names of
+ * the class. It is therefore computed once per class and cached with a
+ * {@link ClassValue}. Calls of classes with such method-level prefixes are
+ * decided call by call.
+ */
+final class StackFrameClassifier extends ClassValue<StackFrameClassifier.Decision> {
+
+    /**
+     * The decision for all calls of a class.
+     */
+    enum Decision {
+        WHITELISTED,
+        NOT_WHITELISTED,
+        DEPENDS_ON_METHOD
+    }
+
+    private final List<String> whitelistedClassNames;
+
+    private final Set<PackageRule> trustedPackages;
+
+    private StackFrameClassifier(List<String> whitelistedClassNames, Set<PackageRule> trustedPackages) {
+        this.whitelistedClassNames = whitelistedClassNames;
+        this.trustedPackages = trustedPackages;
+    }
+
+    /**
+     * Returns a classifier for the given configuration, reusing the given
+     * classifier and its cached decisions if the configuration whitelists the
+     * same classes and trusts the same packages.
+     *
+     * @param configuration the configuration, may be <code>null</code>
+     * @param previous      the classifier of the previous configuration, may be
+     *                      <code>null</code>
+     * @return the classifier for the configuration
+     */
+    static StackFrameClassifier of(AresSecurityConfiguration configuration, StackFrameClassifier previous) {
+        var whitelistedClassNames = configuration == null ? null : configuration.whitelistedClassNames();
+        var trustedPackages = configuration == null ? null : configuration.trustedPackages();
+        if (previous != null && Objects.equals(whitelistedClassNames, previous.whitelistedClassNames) && Objects.equals(trustedPackages, previous.trustedPackages))
+            return previous;
+        return new StackFrameClassifier(whitelistedClassNames, trustedPackages);
+    }
+
+    boolean isStackFrameNotWhitelisted(StackFrame stackFrame) {
+        var decision = get(stackFrame.getDeclaringClass());
+        if (decision == Decision.DEPENDS_ON_METHOD)
+            return isCallNotWhitelisted(stackFrame.getClassName(), stackFrame.getMethodName());
+        return decision == Decision.NOT_WHITELISTED;
+    }
+
+    /**
+     * Counts the given classes whose calls are decided per method, if no class is
+     * not whitelisted.
+     *
+     * @param classes the classes on the stack, starting with the innermost frame
+     * @param end     the number of classes to check
+     * @return the number of classes decided per method or <code>-1</code> if a
+     *         class is not whitelisted
+     */
+    int countDecidedPerMethod(Class<?>[] classes, int end) {
+        var count = 0;
+        for (var i = 0; i < end; i++) {
+            var decision = get(classes[i]);
+            if (decision == Decision.NOT_WHITELISTED)
+                return -1;
+            if (decision == Decision.DEPENDS_ON_METHOD)
+                count++;
+        }
+        return count;
+    }
+
+    boolean isDecidedPerMethod(StackFrame stackFrame) {
+        return get(stackFrame.getDeclaringClass()) == Decision.DEPENDS_ON_METHOD;
+    }
+
+    boolean isCallNotWhitelisted(String className, String methodName) {
+        return isNotWhitelisted(className, className + "." + methodName); //$NON-NLS-1$
+    }
+
+    private boolean isNotWhitelisted(String className, String call) {
+        return SecurityConstants.STACK_BLACKLIST.stream().anyMatch(call::startsWith)
+                || (SecurityConstants.STACK_WHITELIST.stream().noneMatch(call::startsWith) && (whitelistedClassNames == null
+                        || (!whitelistedClassNames.contains(className) && trustedPackages.stream().noneMatch(pm -> pm.matches(className)))));
+    }
+
+    @Override
+    protected Decision computeValue(Class<?> type) {
+        var className = type.getName();
+        // all calls of the class start with this, followed by the method name
+        var callPrefix = className + "."; //$NON-NLS-1$
+        if (reachesIntoMethodNames(SecurityConstants.STACK_BLACKLIST, callPrefix) || reachesIntoMethodNames(SecurityConstants.STACK_WHITELIST, callPrefix))
+            return Decision.DEPENDS_ON_METHOD;
+        return isNotWhitelisted(className, callPrefix) ? Decision.NOT_WHITELISTED : Decision.WHITELISTED;
+    }
+
+    private static boolean reachesIntoMethodNames(Set<String> prefixes, String callPrefix) {
+        return prefixes.stream().anyMatch(prefix -> prefix.length() > callPrefix.length() && prefix.startsWith(callPrefix));
+    }
+}
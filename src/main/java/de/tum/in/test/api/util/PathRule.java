@@ -51,9 +51,13 @@ public final class PathRule {
     }
 
     public boolean matchesWithLevel(Path path, PathActionLevel request) {
+        return appliesToLevel(request) && pathMatcher.matches(path);
+    }
+
+    public boolean appliesToLevel(PathActionLevel request) {
         if (ruleType == RuleType.BLACKLIST)
-            return request.isAboveOrEqual(actionLevel) && pathMatcher.matches(path);
-        return request.isBelowOrEqual(actionLevel) && pathMatcher.matches(path);
+            return request.isAboveOrEqual(actionLevel);
+        return request.isBelowOrEqual(actionLevel);
     }
 
     public boolean matchesRecursivelyWithLevel(Path path, PathActionLevel request) {